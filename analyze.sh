@@ -26,7 +26,6 @@ do
       $PROJ_PATH/go-service/build/MicroAnalyzer -p $TEMP_PATH/$filename -o $PROJ_PATH/data/$lang
     else
       java -jar $PROJ_PATH/java-service/target/MicroAnalyzer.jar -p $TEMP_PATH/$filename -o $PROJ_PATH/data/$lang
-      mv logs.log $PROJ_PATH/data/$lang/$filename/logs.log
     fi
     rm -rf $TEMP_PATH/*
     echo "Done processing repository $filename"
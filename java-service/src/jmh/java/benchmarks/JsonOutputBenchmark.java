@@ -0,0 +1,81 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import models.Executable_;
+import models.Object_;
+import org.openjdk.jmh.annotations.*;
+import output.JsonStreamWriter;
+import output.ListSink;
+import processors.TypeProcessor;
+import spoon.Launcher;
+import spoon.OutputType;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the in-memory JSON conversion of Main.call() with the streaming writer on the same extracted data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonOutputBenchmark {
+    @Param({"100"})
+    public int types;
+    @Param({"10"})
+    public int methodsPerType;
+
+    private SyntheticProject project;
+    private ListSink results;
+    private Path outputDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = SyntheticProject.generate(1, types, methodsPerType);
+        Launcher launcher = new Launcher();
+        launcher.getEnvironment().setOutputType(OutputType.NO_OUTPUT);
+        launcher.addInputResource(project.getSourceRoots().get(0).toString());
+        results = new ListSink(new ArrayList<Object_>(), new ArrayList<Executable_>());
+        TypeProcessor typeProcessor = new TypeProcessor(results, "service0", "default");
+        for (CtType ctType: launcher.buildModel().getElements(new TypeFilter<>(CtType.class))){
+            typeProcessor.process(ctType);
+        }
+        outputDir = Files.createTempDirectory("synthetic-output");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.delete();
+        SyntheticProject.deleteDirectory(outputDir);
+    }
+
+    @Benchmark
+    public void writeInMemory() throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (PrintWriter out = new PrintWriter(outputDir.resolve("typeData.json").toFile())) {
+            out.println(gson.toJson(results.getObjects()));
+        }
+        try (PrintWriter out = new PrintWriter(outputDir.resolve("methodData.json").toFile())) {
+            out.println(gson.toJson(results.getMethods()));
+        }
+    }
+
+    @Benchmark
+    public void writeStreaming() throws IOException {
+        try (JsonStreamWriter writer = new JsonStreamWriter(outputDir.resolve("typeData.json"),
+                outputDir.resolve("methodData.json"))) {
+            results.getObjects().forEach(writer::addObject);
+            results.getMethods().forEach(writer::addMethod);
+        }
+    }
+}
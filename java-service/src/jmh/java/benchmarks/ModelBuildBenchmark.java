@@ -0,0 +1,45 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import spoon.Launcher;
+import spoon.OutputType;
+import spoon.reflect.CtModel;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Spoon model build of one microservice, as done by Main.analyze() before processing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelBuildBenchmark {
+    @Param({"100"})
+    public int types;
+    @Param({"10"})
+    public int methodsPerType;
+
+    private SyntheticProject project;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = SyntheticProject.generate(1, types, methodsPerType);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.delete();
+    }
+
+    @Benchmark
+    public CtModel buildModel() {
+        Launcher launcher = new Launcher();
+        launcher.getEnvironment().setOutputType(OutputType.NO_OUTPUT);
+        launcher.addInputResource(project.getSourceRoots().get(0).toString());
+        return launcher.buildModel();
+    }
+}
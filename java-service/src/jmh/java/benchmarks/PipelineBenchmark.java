@@ -0,0 +1,55 @@
+package benchmarks;
+
+import cli.Main;
+import org.openjdk.jmh.annotations.*;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a complete run of the command line (discovery, model build, processing and JSON output) on a
+ * generated multi-service project.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PipelineBenchmark {
+    @Param({"4"})
+    public int services;
+    @Param({"50"})
+    public int types;
+    @Param({"10"})
+    public int methodsPerType;
+    @Param({"false", "true"})
+    public boolean stream;
+
+    private SyntheticProject project;
+    private Path outputDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = SyntheticProject.generate(services, types, methodsPerType);
+        outputDir = Files.createTempDirectory("synthetic-output");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.delete();
+        SyntheticProject.deleteDirectory(outputDir);
+    }
+
+    @Benchmark
+    public int analyze() {
+        if (stream)
+            return new CommandLine(new Main()).execute("-p", project.getRoot().toString(),
+                    "-o", outputDir.toString(), "--stream");
+        return new CommandLine(new Main()).execute("-p", project.getRoot().toString(),
+                "-o", outputDir.toString());
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Generates a synthetic microservices project with the usual "service/src/main/java" layout. Every fifth type
+ * extends the previous one so that inherited methods are part of the workload.
+ */
+public class SyntheticProject {
+    private final Path root;
+    private final List<Path> sourceRoots = new ArrayList<>();
+
+    private SyntheticProject(Path root) {
+        this.root = root;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public List<Path> getSourceRoots() {
+        return sourceRoots;
+    }
+
+    public static SyntheticProject generate(int services, int types, int methodsPerType) throws IOException {
+        SyntheticProject project = new SyntheticProject(Files.createTempDirectory("synthetic-project"));
+        for (int s = 0; s < services; s++){
+            String packageName = "com.bench.service" + s;
+            Path sourceRoot = project.root.resolve("service" + s).resolve("src/main/java");
+            Path packageDir = sourceRoot.resolve(packageName.replace('.', '/'));
+            Files.createDirectories(packageDir);
+            for (int t = 0; t < types; t++){
+                Files.write(packageDir.resolve("Type" + t + ".java"),
+                        typeSource(packageName, t, methodsPerType).getBytes(StandardCharsets.UTF_8));
+            }
+            project.sourceRoots.add(sourceRoot);
+        }
+        return project;
+    }
+
+    private static String typeSource(String packageName, int t, int methodsPerType) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("package ").append(packageName).append(";\n\n");
+        builder.append("import java.util.ArrayList;\nimport java.util.List;\n\n");
+        builder.append("/**\n * Synthetic type ").append(t).append(".\n */\n");
+        builder.append("public class Type").append(t);
+        if ((t > 0)&&(t % 5 != 0))
+            builder.append(" extends Type").append(t - 1);
+        builder.append(" {\n");
+        builder.append("    private final List<String> values").append(t).append(" = new ArrayList<>();\n\n");
+        builder.append("    public Type").append(t).append("() {\n        values").append(t)
+                .append(".add(\"init\");\n    }\n\n");
+        for (int m = 0; m < methodsPerType; m++){
+            builder.append("    public int method").append(t).append('_').append(m).append("(int input, String name) {\n");
+            builder.append("        int result = input;\n");
+            builder.append("        for (int i = 0; i < name.length(); i++) {\n");
+            builder.append("            if (name.charAt(i) == 'a') {\n");
+            builder.append("                result += i * ").append(m + 1).append(";\n");
+            builder.append("            } else {\n");
+            builder.append("                values").append(t).append(".add(name.substring(i));\n");
+            builder.append("            }\n");
+            builder.append("        }\n");
+            builder.append("        return result;\n");
+            builder.append("    }\n\n");
+        }
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    public void delete() throws IOException {
+        deleteDirectory(root);
+    }
+
+    public static void deleteDirectory(Path root) throws IOException {
+        if (!Files.exists(root))
+            return;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path: (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator){
+                Files.delete(path);
+            }
+        }
+    }
+}
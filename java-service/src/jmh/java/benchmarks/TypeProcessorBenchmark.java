@@ -0,0 +1,63 @@
+package benchmarks;
+
+import models.Executable_;
+import models.Object_;
+import org.openjdk.jmh.annotations.*;
+import output.ListSink;
+import processors.TypeProcessor;
+import spoon.Launcher;
+import spoon.OutputType;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the TypeProcessor on an already built model, including the extraction of the content with each
+ * content mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TypeProcessorBenchmark {
+    @Param({"100"})
+    public int types;
+    @Param({"10"})
+    public int methodsPerType;
+    @Param({"printed", "source"})
+    public TypeProcessor.ContentMode contentMode;
+
+    private SyntheticProject project;
+    private List<CtType> ctTypes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        project = SyntheticProject.generate(1, types, methodsPerType);
+        Launcher launcher = new Launcher();
+        launcher.getEnvironment().setOutputType(OutputType.NO_OUTPUT);
+        launcher.addInputResource(project.getSourceRoots().get(0).toString());
+        ctTypes = launcher.buildModel().getElements(new TypeFilter<>(CtType.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        project.delete();
+    }
+
+    @Benchmark
+    public ListSink processTypes() {
+        ListSink sink = new ListSink(new ArrayList<Object_>(), new ArrayList<Executable_>());
+        TypeProcessor typeProcessor = new TypeProcessor(sink, "service0", "default");
+        typeProcessor.setContentMode(contentMode);
+        for (CtType ctType: ctTypes){
+            typeProcessor.process(ctType);
+        }
+        return sink;
+    }
+}
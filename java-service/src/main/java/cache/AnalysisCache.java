@@ -0,0 +1,152 @@
+package cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import models.Executable_;
+import models.Object_;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk cache of the types and methods extracted from each source file, keyed by the path and the content
+ * hash of the file. The entries of a microservice are stored together in one JSON file and are only reused when
+ * they were produced with the same analysis options (the fingerprint).
+ */
+public class AnalysisCache {
+    private final Gson gson = new Gson();
+    private final Path cacheDir;
+    private final String fingerprint;
+
+    /**
+     * The results extracted from one source file. The dependencies are the other files (with their hashes) whose
+     * content was used to build these results, such as the files declaring inherited methods.
+     */
+    public static class FileEntry {
+        private String hash;
+        private Map<String, String> dependencies = new HashMap<>();
+        private List<Object_> objects = new ArrayList<>();
+        private List<Executable_> methods = new ArrayList<>();
+
+        public FileEntry(String hash) {
+            this.hash = hash;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public Map<String, String> getDependencies() {
+            return dependencies;
+        }
+
+        public List<Object_> getObjects() {
+            return objects;
+        }
+
+        public List<Executable_> getMethods() {
+            return methods;
+        }
+
+        /**
+         * Checks that neither the file nor any of its dependencies changed since the entry was created.
+         */
+        public boolean isValid(String currentHash, Map<String, String> currentHashes) {
+            if (!hash.equals(currentHash))
+                return false;
+            for (Map.Entry<String, String> dependency: dependencies.entrySet()){
+                if (!dependency.getValue().equals(currentHashes.get(dependency.getKey())))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static class ServiceEntries {
+        private String fingerprint;
+        private Map<String, FileEntry> files;
+    }
+
+    public AnalysisCache(Path cacheDir, String fingerprint) {
+        this.cacheDir = cacheDir;
+        this.fingerprint = fingerprint;
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    private Path servicePath(String serviceName) {
+        return cacheDir.resolve(serviceName.replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+    }
+
+    /**
+     * Loads the cached entries of a microservice. A missing, unreadable or incompatible cache file results in an
+     * empty map so that every file gets analyzed again.
+     */
+    public Map<String, FileEntry> load(String serviceName) {
+        Path path = servicePath(serviceName);
+        if (!Files.isRegularFile(path))
+            return new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            ServiceEntries entries = gson.fromJson(reader, ServiceEntries.class);
+            if ((entries == null)||(entries.files == null)||(!fingerprint.equals(entries.fingerprint)))
+                return new LinkedHashMap<>();
+            return new LinkedHashMap<>(entries.files);
+        }
+        catch (IOException | JsonParseException e){
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Replaces the cached entries of a microservice, which also drops the entries of deleted files.
+     */
+    public void save(String serviceName, Map<String, FileEntry> files) throws IOException {
+        Files.createDirectories(cacheDir);
+        ServiceEntries entries = new ServiceEntries();
+        entries.fingerprint = fingerprint;
+        entries.files = files;
+        Path path = servicePath(serviceName);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            gson.toJson(entries, writer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0){
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b: digest.digest()){
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
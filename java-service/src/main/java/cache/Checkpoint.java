@@ -0,0 +1,240 @@
+package cache;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import output.JsonStreamWriter;
+import processors.DependencyGraph;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Saves the results of each microservice as soon as it has been analyzed, so that an interrupted run can be
+ * resumed without analyzing the finished microservices again. The results of a microservice are kept in its own
+ * JSON files (with its dependency graph, when the dependencies are extracted) and "progress.json" lists the
+ * microservices that were completed, with the options (the fingerprint) used to analyze them. A checkpoint left
+ * by a run with other options is discarded.
+ */
+public class Checkpoint {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Path checkpointDir;
+    private final String fingerprint;
+    private Progress progress;
+
+    /**
+     * A completed microservice.
+     */
+    public static class ServiceEntry {
+        private String input;
+        private long objects;
+        private long methods;
+
+        public ServiceEntry(String input, long objects, long methods) {
+            this.input = input;
+            this.objects = objects;
+            this.methods = methods;
+        }
+
+        public String getInput() {
+            return input;
+        }
+
+        public long getObjects() {
+            return objects;
+        }
+
+        public long getMethods() {
+            return methods;
+        }
+    }
+
+    /**
+     * A saved dependency graph: the names of the nodes of each kind in the order of their ids, the ids of the
+     * declared ones, and the (source, target) id pairs of each relation.
+     */
+    private static class SavedGraph {
+        private Map<DependencyGraph.NodeKind, List<String>> nodes = new EnumMap<>(DependencyGraph.NodeKind.class);
+        private Map<DependencyGraph.NodeKind, List<Integer>> declared =
+                new EnumMap<>(DependencyGraph.NodeKind.class);
+        private Map<DependencyGraph.Relation, int[]> edges = new EnumMap<>(DependencyGraph.Relation.class);
+    }
+
+    private static class Progress {
+        private String fingerprint;
+        private Map<String, ServiceEntry> services = new LinkedHashMap<>();
+    }
+
+    public Checkpoint(Path checkpointDir, String fingerprint) {
+        this.checkpointDir = checkpointDir;
+        this.fingerprint = fingerprint;
+    }
+
+    public Path getCheckpointDir() {
+        return checkpointDir;
+    }
+
+    /**
+     * Loads the progress of the previous run, or deletes its checkpoint if it cannot be reused. Returns the
+     * number of completed microservices.
+     */
+    public synchronized int load() throws IOException {
+        Path path = checkpointDir.resolve("progress.json");
+        progress = null;
+        if (Files.isRegularFile(path)){
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                progress = gson.fromJson(reader, Progress.class);
+            }
+            catch (JsonParseException e){
+                progress = null;
+            }
+        }
+        if ((progress == null)||(progress.services == null)||(!fingerprint.equals(progress.fingerprint))){
+            clear();
+            progress = new Progress();
+            progress.fingerprint = fingerprint;
+        }
+        return progress.services.size();
+    }
+
+    /**
+     * Checks whether the microservice was completed from the same source path.
+     */
+    public synchronized boolean isComplete(String serviceName, String input) {
+        ServiceEntry entry = progress.services.get(serviceName);
+        return (entry != null)&&(entry.input.equals(input));
+    }
+
+    /**
+     * Creates the writer for the results of a microservice, replacing any unfinished results.
+     */
+    public JsonStreamWriter open(String serviceName) throws IOException {
+        return new JsonStreamWriter(typePath(serviceName), methodPath(serviceName));
+    }
+
+    /**
+     * Returns the saved results of a completed microservice.
+     */
+    public synchronized JsonStreamWriter get(String serviceName) {
+        ServiceEntry entry = progress.services.get(serviceName);
+        return JsonStreamWriter.reopen(typePath(serviceName), methodPath(serviceName), entry.objects,
+                entry.methods);
+    }
+
+    /**
+     * Marks the microservice as completed once its closed writer holds all of its results.
+     */
+    public synchronized void complete(String serviceName, String input, JsonStreamWriter results)
+            throws IOException {
+        progress.services.put(serviceName,
+                new ServiceEntry(input, results.getObjectCount(), results.getMethodCount()));
+        Path path = checkpointDir.resolve("progress.json");
+        Path temp = path.resolveSibling("progress.json.tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            gson.toJson(progress, writer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Saves the dependency graph of a microservice, before it is marked as completed.
+     */
+    public void saveGraph(String serviceName, DependencyGraph graph) throws IOException {
+        SavedGraph saved = new SavedGraph();
+        for (DependencyGraph.NodeKind kind: DependencyGraph.NodeKind.values()){
+            List<String> names = new ArrayList<>();
+            List<Integer> declared = new ArrayList<>();
+            for (int id = 0; id < graph.getNodeCount(kind); id++){
+                names.add(graph.getName(kind, id));
+                if (graph.isDeclared(kind, id))
+                    declared.add(id);
+            }
+            saved.nodes.put(kind, names);
+            saved.declared.put(kind, declared);
+        }
+        for (DependencyGraph.Relation relation: DependencyGraph.Relation.values()){
+            int[] pairs = new int[graph.getEdgeCount(relation) * 2];
+            for (int i = 0; i < pairs.length / 2; i++){
+                pairs[2 * i] = graph.getEdgeSource(relation, i);
+                pairs[2 * i + 1] = graph.getEdgeTarget(relation, i);
+            }
+            saved.edges.put(relation, pairs);
+        }
+        try (Writer writer = Files.newBufferedWriter(graphPath(serviceName), StandardCharsets.UTF_8)) {
+            gson.toJson(saved, writer);
+        }
+    }
+
+    /**
+     * Returns the saved dependency graph of a completed microservice, or null if it was not saved.
+     */
+    public DependencyGraph loadGraph(String serviceName) throws IOException {
+        Path path = graphPath(serviceName);
+        if (!Files.isRegularFile(path))
+            return null;
+        SavedGraph saved;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            saved = gson.fromJson(reader, SavedGraph.class);
+        }
+        catch (JsonParseException e){
+            return null;
+        }
+        DependencyGraph graph = new DependencyGraph();
+        for (DependencyGraph.NodeKind kind: DependencyGraph.NodeKind.values()){
+            for (String name: saved.nodes.get(kind)){
+                graph.node(kind, name);
+            }
+            for (Integer id: saved.declared.get(kind)){
+                graph.declare(kind, saved.nodes.get(kind).get(id));
+            }
+        }
+        for (DependencyGraph.Relation relation: DependencyGraph.Relation.values()){
+            int[] pairs = saved.edges.get(relation);
+            for (int i = 0; i < pairs.length; i += 2){
+                graph.addEdge(relation, graph.getName(relation.getSource(), pairs[i]),
+                        graph.getName(relation.getTarget(), pairs[i + 1]));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Deletes the checkpoint, once the outputs of the run have been written.
+     */
+    public synchronized void clear() throws IOException {
+        if (!Files.isDirectory(checkpointDir))
+            return;
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(checkpointDir)) {
+            files = paths.collect(Collectors.toList());
+        }
+        for (Path file: files){
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(checkpointDir);
+    }
+
+    private Path typePath(String serviceName) {
+        return checkpointDir.resolve(serviceName.replaceAll("[^A-Za-z0-9._-]", "_") + "-typeData.json");
+    }
+
+    private Path methodPath(String serviceName) {
+        return checkpointDir.resolve(serviceName.replaceAll("[^A-Za-z0-9._-]", "_") + "-methodData.json");
+    }
+
+    private Path graphPath(String serviceName) {
+        return checkpointDir.resolve(serviceName.replaceAll("[^A-Za-z0-9._-]", "_") + "-dependencies.json");
+    }
+}
@@ -0,0 +1,142 @@
+package cache;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import services.ClasspathResolver;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the dependency classpaths resolved by {@link ClasspathResolver}, keyed by the hash of the build file
+ * (with the poms of its parent directories) and of the repositories. Each classpath is stored in its own JSON
+ * file and is resolved again when one of its jars disappeared from the repositories.
+ */
+public class ClasspathCache {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Path cacheDir;
+    private final ClasspathResolver resolver;
+    private final Map<String, List<String>> classpaths = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        private String buildFile;
+        private List<String> repositories = new ArrayList<>();
+        private List<String> jars = new ArrayList<>();
+    }
+
+    public ClasspathCache(Path cacheDir, ClasspathResolver resolver) {
+        this.cacheDir = cacheDir;
+        this.resolver = resolver;
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * Returns the classpath of a module, resolving and saving it when it is not cached yet. Returns an empty list
+     * for a directory without build file.
+     */
+    public List<String> get(Path moduleRoot) throws IOException {
+        Path buildFile = ClasspathResolver.findBuildFile(moduleRoot);
+        if (buildFile == null)
+            return new ArrayList<>();
+        String key = key(buildFile);
+        List<String> classpath = classpaths.get(key);
+        if (classpath != null)
+            return classpath;
+        synchronized (this) {
+            classpath = classpaths.get(key);
+            if (classpath == null){
+                classpath = load(key);
+                if (classpath == null){
+                    classpath = new ArrayList<>();
+                    for (Path jar: resolver.resolve(buildFile)){
+                        classpath.add(jar.toAbsolutePath().toString());
+                    }
+                    save(key, buildFile, classpath);
+                }
+                classpaths.put(key, classpath);
+            }
+            return classpath;
+        }
+    }
+
+    private List<String> load(String key) {
+        Path path = cacheDir.resolve(key + ".json");
+        if (!Files.isRegularFile(path))
+            return null;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Entry entry = gson.fromJson(reader, Entry.class);
+            if ((entry == null)||(entry.jars == null))
+                return null;
+            for (String jar: entry.jars){
+                if (!Files.isRegularFile(Paths.get(jar)))
+                    return null;
+            }
+            return entry.jars;
+        }
+        catch (IOException | JsonParseException e){
+            return null;
+        }
+    }
+
+    private void save(String key, Path buildFile, List<String> classpath) throws IOException {
+        Files.createDirectories(cacheDir);
+        Entry entry = new Entry();
+        entry.buildFile = buildFile.toAbsolutePath().toString();
+        for (Path repository: resolver.getRepositories()){
+            entry.repositories.add(repository.toString());
+        }
+        entry.jars = classpath;
+        Path path = cacheDir.resolve(key + ".json");
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            gson.toJson(entry, writer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Hashes the build file, the poms of the parent directories (which may declare its parent pom) and the
+     * repositories.
+     */
+    private String key(Path buildFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+        digest.update(Files.readAllBytes(buildFile));
+        Path directory = buildFile.toAbsolutePath().getParent().getParent();
+        for (int i = 0; (i < 10)&&(directory != null); i++, directory = directory.getParent()){
+            Path parentPom = directory.resolve("pom.xml");
+            if (!Files.isRegularFile(parentPom))
+                break;
+            digest.update(Files.readAllBytes(parentPom));
+        }
+        for (Path repository: resolver.getRepositories()){
+            digest.update(repository.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b: digest.digest()){
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package cache;
+
+import models.Executable_;
+import models.Object_;
+import output.ResultSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the extracted types and methods by the source file of their type. It relies on the TypeProcessor
+ * emitting the methods of a type right before the type itself.
+ */
+public class FileGroupingSink implements ResultSink {
+    private final Map<String, String> hashes;
+    private final Map<String, AnalysisCache.FileEntry> entries = new HashMap<>();
+    private final List<Executable_> pending = new ArrayList<>();
+
+    public FileGroupingSink(Map<String, String> hashes) {
+        this.hashes = hashes;
+    }
+
+    public Map<String, AnalysisCache.FileEntry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public void addObject(Object_ object_) {
+        String path = canonicalPath(object_.getFilePath());
+        AnalysisCache.FileEntry entry = entries.computeIfAbsent(path,
+                p -> new AnalysisCache.FileEntry(hashes.getOrDefault(p, "")));
+        entry.getMethods().addAll(pending);
+        entry.getObjects().add(object_);
+        pending.clear();
+    }
+
+    @Override
+    public void addMethod(Executable_ method_) {
+        pending.add(method_);
+    }
+
+    public static String canonicalPath(String path) {
+        try {
+            return new File(path).getCanonicalPath();
+        }
+        catch (IOException e){
+            return new File(path).getAbsolutePath();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package cache;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.cu.position.NoSourcePosition;
+import spoon.reflect.declaration.CtCompilationUnit;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtModule;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.CtScanner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves the Spoon models built for the microservices as gzip-compressed snapshots (the Java serialization of the
+ * factory, as done by Spoon's SerializationModelStreamer), keyed by the hash of the source tree: the paths and
+ * content hashes of the Java files and the dependency classpath. A later run on unchanged sources loads the
+ * snapshot instead of parsing the files and building the model again, whatever its extraction options. Only the
+ * classes of Spoon and of the JDK are deserialized from a snapshot.
+ */
+public class ModelCache {
+    private static final String VERSION = "v1";
+    private static final ObjectInputFilter SNAPSHOT_FILTER = ObjectInputFilter.Config.createFilter("spoon.**;java.**;!*");
+    private static Logger consoleLogger = (Logger) LoggerFactory.getLogger("consoleLogger");
+    private static Logger fileLogger = (Logger) LoggerFactory.getLogger("fileLogger");
+    private final Path cacheDir;
+
+    public ModelCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * Hashes the Java files under a source root (with their paths) and the classpath the model is built with.
+     */
+    public String key(Path sourceRoot, List<String> classpath) throws IOException {
+        TreeMap<String, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(sourceRoot)) {
+            for (Path file: paths.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                    .collect(Collectors.toList())){
+                files.put(file.toFile().getCanonicalPath(), file);
+            }
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+        digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+        for (String file: files.keySet()){
+            digest.update((file + "\0" + AnalysisCache.hash(files.get(file)) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        for (String jar: classpath){
+            digest.update((jar + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b: digest.digest()){
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Loads the model saved under a key, or returns null when there is none or it cannot be read (e.g. it was
+     * saved by another version of Spoon or holds classes rejected by the filter).
+     */
+    public Factory load(String key) {
+        Path path = snapshotPath(key);
+        if (!Files.isRegularFile(path))
+            return null;
+        try (ObjectInputStream in = new SnapshotInputStream(
+                new GZIPInputStream(Files.newInputStream(path), 1 << 16))) {
+            Factory factory = (Factory) in.readObject();
+            restoreFactory(factory);
+            return factory;
+        }
+        catch (IOException | ClassNotFoundException | RuntimeException e){
+            consoleLogger.debug("Rejected the model snapshot {}: {}", path, e.toString());
+            fileLogger.debug("Rejected the model snapshot {}: {}", path, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Only accepts the classes of Spoon and of the JDK, and reads the unique {@link SourcePosition#NOPOSITION},
+     * which Spoon compares by identity, instead of copies.
+     */
+    private static class SnapshotInputStream extends ObjectInputStream {
+        private SnapshotInputStream(InputStream in) throws IOException {
+            super(in);
+            setObjectInputFilter(SNAPSHOT_FILTER);
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object object) {
+            if ((object != null)&&(object.getClass() == NoSourcePosition.class))
+                return SourcePosition.NOPOSITION;
+            return object;
+        }
+    }
+
+    /**
+     * Gives back their factory, which is not serialized, to the elements of the modules and to the compilation
+     * units of the types (with their imports), so that the original source code can still be read.
+     */
+    private static void restoreFactory(Factory factory) {
+        CtScanner scanner = new CtScanner() {
+            @Override
+            protected void enter(CtElement element) {
+                element.setFactory(factory);
+            }
+        };
+        for (CtModule module: factory.Module().getAllModules()){
+            scanner.scan(module);
+        }
+        Set<CtCompilationUnit> compilationUnits = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CtType<?> type: factory.Type().getAll()){
+            CtCompilationUnit compilationUnit = type.getPosition().getCompilationUnit();
+            if ((compilationUnit != null)&&(compilationUnits.add(compilationUnit)))
+                scanner.scan(compilationUnit);
+        }
+    }
+
+    public void save(String key, Factory factory) throws IOException {
+        Files.createDirectories(cacheDir);
+        Path path = snapshotPath(key);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeObject(factory);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path snapshotPath(String key) {
+        return cacheDir.resolve(key + ".model.gz");
+    }
+}
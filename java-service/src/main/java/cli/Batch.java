@@ -0,0 +1,355 @@
+package cli;
+
+import ch.qos.logback.classic.Logger;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.LoggerFactory;
+import output.JsonStreamWriter;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyzes many applications listed in a manifest in a single process. The microservices of all the
+ * applications are scheduled together on a work-stealing pool, largest first, and each one reserves an estimate
+ * of the heap its model needs from a global budget before starting. The results of each application are written
+ * to its own output directory as soon as all its microservices are done. A microservice that fails is retried
+ * alone once the other jobs are finished; an application whose microservice still fails is reported as failed
+ * without stopping the batch.
+ *
+ * <p>The manifest is either a JSON array of jobs like those of {@link Server} ({"path": ..., "output": ...,
+ * "monolithic": ..., "options": [...]}) or a text file with one application path per line.</p>
+ */
+@CommandLine.Command(name = "batch", mixinStandardHelpOptions = true, version = "checksum 1.0",
+        description = "Analyzes all the applications listed in a manifest in a single process.")
+public class Batch implements Callable<Integer> {
+    /**
+     * The estimated heap needed to analyze a microservice, per byte of source code.
+     */
+    static final long HEAP_PER_SOURCE_BYTE = 40;
+    static final long MIN_HEAP_PER_SERVICE = 64L << 20;
+
+    @CommandLine.Option(
+            names = {"--manifest"},
+            description = "The manifest listing the applications to analyze (JSON or one path per line)",
+            required = true)
+    private Path manifestPath;
+    @CommandLine.Option(
+            names = {"-o", "--output"},
+            description = "The output path to save the results in, for the applications without their own",
+            required = false, defaultValue = "./data/java/")
+    private String outputPath;
+    @CommandLine.Option(
+            names = {"-t", "--threads"},
+            description = "The number of microservices to analyze in parallel (default: the number of processors)",
+            required = false, defaultValue = "0")
+    private int threads;
+    @CommandLine.Option(
+            names = {"--heap-budget"},
+            description = "The heap, in MB, that the microservices being analyzed may use together " +
+                    "(default: 0, three quarters of the maximum heap)",
+            required = false, defaultValue = "0")
+    private long heapBudget;
+    @CommandLine.Option(
+            names = {"--retries"},
+            description = "The number of times a failed microservice is analyzed again, alone (default: 1)",
+            required = false, defaultValue = "1")
+    private int retries;
+
+    private static Logger consoleLogger = (Logger) LoggerFactory.getLogger("consoleLogger");
+    private static Logger fileLogger = (Logger) LoggerFactory.getLogger("fileLogger");
+
+    public enum RepositoryStatus {
+        pending,
+        done,
+        failed
+    }
+
+    /**
+     * An application of the manifest and the state of its analysis.
+     */
+    static class Repository {
+        private final String path;
+        private final String output;
+        private final boolean monolithic;
+        private final List<String> options;
+        private transient Main main;
+        private transient JsonStreamWriter[] parts;
+        private transient AtomicInteger remaining;
+        private volatile RepositoryStatus status = RepositoryStatus.pending;
+        private volatile String error;
+        private int services;
+        private long wallMillis;
+        private transient long started;
+
+        Repository(String path, String output, boolean monolithic, List<String> options) {
+            this.path = path;
+            this.output = output;
+            this.monolithic = monolithic;
+            this.options = options;
+        }
+
+        String[] toArguments() {
+            List<String> arguments = new ArrayList<>();
+            arguments.add("--path");
+            arguments.add(path);
+            arguments.add("--output");
+            arguments.add(output);
+            if (monolithic)
+                arguments.add("--monolithic");
+            arguments.addAll(options);
+            return arguments.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * The analysis of one microservice of an application.
+     */
+    private static class ServiceJob {
+        private final Repository repository;
+        private final int index;
+        private final long weight;
+        private int attempts = 0;
+
+        private ServiceJob(Repository repository, int index, long weight) {
+            this.repository = repository;
+            this.index = index;
+            this.weight = weight;
+        }
+
+        private String describe() {
+            return "microservice \"" + repository.main.getInputNames().get(index) + "\" of " + repository.path;
+        }
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        List<Repository> repositories = readManifest();
+        int poolSize = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        long budget = (heapBudget > 0) ? heapBudget << 20 : Runtime.getRuntime().maxMemory() / 4 * 3;
+        List<ServiceJob> jobs = new ArrayList<>();
+        for (Repository repository: repositories){
+            if (repository.status == RepositoryStatus.failed)
+                continue;
+            repository.started = System.currentTimeMillis();
+            if (!Files.isDirectory(Paths.get(repository.path))){
+                fail(repository, "No application found in " + repository.path, null);
+                repository.error = "Not a directory";
+                continue;
+            }
+            try {
+                repository.main = new Main();
+                new CommandLine(repository.main).parseArgs(repository.toArguments());
+                if (repository.main.isAnalyzingCommits())
+                    throw new IllegalArgumentException("--commit is not supported in a batch");
+                repository.main.prepare();
+            }
+            catch (Exception e){
+                fail(repository, "Failed to prepare " + repository.path, e);
+                continue;
+            }
+            List<Long> weights = repository.main.getWeights();
+            repository.services = weights.size();
+            repository.parts = new JsonStreamWriter[weights.size()];
+            repository.remaining = new AtomicInteger(weights.size());
+            for (int i = 0; i < weights.size(); i++){
+                jobs.add(new ServiceJob(repository, i, weights.get(i)));
+            }
+            if (weights.isEmpty())
+                complete(repository);
+        }
+        jobs.sort(Comparator.comparingLong((ServiceJob job) -> job.weight).reversed());
+        consoleLogger.info("Analyzing {} microservices of {} applications with {} threads and a heap budget of {} MB",
+                jobs.size(), repositories.size(), poolSize, budget >> 20);
+        fileLogger.info("Analyzing {} microservices of {} applications with {} threads and a heap budget of {} MB",
+                jobs.size(), repositories.size(), poolSize, budget >> 20);
+        int budgetMegabytes = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget >> 20));
+        Semaphore heap = new Semaphore(budgetMegabytes, true);
+        ConcurrentLinkedQueue<ServiceJob> failed = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newWorkStealingPool(poolSize);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (ServiceJob job: jobs){
+                futures.add(executor.submit(() -> {
+                    int reserved = (int) Math.min(budgetMegabytes,
+                            Math.max(MIN_HEAP_PER_SERVICE, job.weight * HEAP_PER_SOURCE_BYTE) >> 20);
+                    heap.acquireUninterruptibly(reserved);
+                    try {
+                        if (!run(job))
+                            failed.add(job);
+                    }
+                    finally {
+                        heap.release(reserved);
+                    }
+                }));
+            }
+            for (Future<?> future: futures){
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        for (ServiceJob job: failed){
+            boolean succeeded = false;
+            while ((!succeeded)&&(job.attempts <= retries)&&(job.repository.status == RepositoryStatus.pending)){
+                consoleLogger.info("Retrying {} alone", job.describe());
+                fileLogger.info("Retrying {} alone", job.describe());
+                succeeded = run(job);
+            }
+            if ((!succeeded)&&(job.repository.status == RepositoryStatus.pending)){
+                fail(job.repository, "Failed to analyze " + job.describe() + " after " + job.attempts +
+                        " attempts", null);
+                job.repository.main.deleteParts();
+            }
+        }
+        writeReport(repositories);
+        long failures = repositories.stream().filter(r -> r.status != RepositoryStatus.done).count();
+        consoleLogger.info("Analyzed {} applications, {} failed", repositories.size() - failures, failures);
+        fileLogger.info("Analyzed {} applications, {} failed", repositories.size() - failures, failures);
+        return (failures == 0) ? 0 : 1;
+    }
+
+    /**
+     * Analyzes a microservice and writes the results of its application once it was the last one. Returns false
+     * if the analysis failed.
+     */
+    private boolean run(ServiceJob job) {
+        job.attempts++;
+        Repository repository = job.repository;
+        try {
+            repository.parts[job.index] = repository.main.analyzePart(job.index);
+        }
+        catch (Exception | OutOfMemoryError | StackOverflowError e){
+            consoleLogger.error("Failed to analyze {} (attempt {}): {}", job.describe(), job.attempts, e);
+            fileLogger.error("Failed to analyze {} (attempt {}): {}", job.describe(), job.attempts, e);
+            repository.error = e.toString();
+            return false;
+        }
+        if (repository.remaining.decrementAndGet() == 0)
+            complete(repository);
+        return true;
+    }
+
+    /**
+     * Writes the results of an application whose microservices were all analyzed, then releases its analysis (with
+     * the symbols of its entities) so that the batch does not keep the state of the applications it has finished.
+     */
+    private void complete(Repository repository) {
+        try {
+            repository.main.writeParts(Arrays.asList(repository.parts));
+            repository.main.finish();
+            repository.main.closeRunLog();
+            repository.error = null;
+            repository.status = RepositoryStatus.done;
+            repository.wallMillis = System.currentTimeMillis() - repository.started;
+            consoleLogger.info("Finished analyzing {}", repository.path);
+            fileLogger.info("Finished analyzing {}", repository.path);
+        }
+        catch (Exception e){
+            fail(repository, "Failed to save the results of " + repository.path, e);
+        }
+        finally {
+            repository.main = null;
+            repository.parts = null;
+        }
+    }
+
+    private void fail(Repository repository, String message, Exception e) {
+        if (e != null)
+            repository.error = e.toString();
+        repository.status = RepositoryStatus.failed;
+        repository.wallMillis = System.currentTimeMillis() - repository.started;
+        if (repository.main != null)
+            repository.main.closeRunLog();
+        consoleLogger.error(message);
+        fileLogger.error(message);
+    }
+
+    private List<Repository> readManifest() throws IOException {
+        List<Repository> repositories = new ArrayList<>();
+        String text = new String(Files.readAllBytes(manifestPath), StandardCharsets.UTF_8);
+        if (text.trim().startsWith("[")){
+            JsonArray jobs;
+            try (Reader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+                jobs = JsonParser.parseReader(reader).getAsJsonArray();
+            }
+            for (int i = 0; i < jobs.size(); i++){
+                JsonElement element = jobs.get(i);
+                String error = element.isJsonObject() ? Server.validate(element.getAsJsonObject()) :
+                        "Every job must be a JSON object";
+                if (error != null){
+                    repositories.add(invalid(element, i, error));
+                    continue;
+                }
+                JsonObject job = element.getAsJsonObject();
+                List<String> options = new ArrayList<>();
+                if (job.has("options")){
+                    for (JsonElement option: job.getAsJsonArray("options")){
+                        options.add(option.getAsString());
+                    }
+                }
+                repositories.add(new Repository(job.get("path").getAsString(),
+                        job.has("output") ? job.get("output").getAsString() : outputPath,
+                        job.has("monolithic") && job.get("monolithic").getAsBoolean(), options));
+            }
+        }
+        else {
+            for (String line: text.split("\\R")){
+                line = line.trim();
+                if ((!line.isEmpty())&&(!line.startsWith("#")))
+                    repositories.add(new Repository(line, outputPath, false, new ArrayList<>()));
+            }
+        }
+        return repositories;
+    }
+
+    /**
+     * Returns a failed application for an invalid job of the manifest, named after its path when it has one.
+     */
+    private Repository invalid(JsonElement job, int index, String error) {
+        JsonElement path = job.isJsonObject() ? job.getAsJsonObject().get("path") : null;
+        String name = ((path != null)&&(path.isJsonPrimitive())) ? path.getAsString() : "job " + index;
+        Repository repository = new Repository(name, outputPath, false, new ArrayList<>());
+        repository.status = RepositoryStatus.failed;
+        repository.error = error;
+        consoleLogger.error("Skipping job {} of the manifest: {}", index, error);
+        fileLogger.error("Skipping job {} of the manifest: {}", index, error);
+        return repository;
+    }
+
+    /**
+     * Saves the status of every application in "batch.json" in the output directory.
+     */
+    private void writeReport(List<Repository> repositories) throws IOException {
+        Path reportPath = Paths.get(outputPath, "batch.json");
+        Files.createDirectories(reportPath.getParent());
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer writer = Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8)) {
+            gson.toJson(repositories, writer);
+        }
+    }
+}
@@ -1,32 +1,102 @@
 package cli;
 
+import cache.AnalysisCache;
+import cache.Checkpoint;
+import cache.ClasspathCache;
+import cache.FileGroupingSink;
+import cache.ModelCache;
+import ch.qos.logback.classic.ClassicConstants;
 import ch.qos.logback.classic.Level;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import metrics.AnalysisMetrics;
+import metrics.PhaseMetrics;
+import metrics.RunMetrics;
+import metrics.ServiceMetrics;
 import models.Executable_;
 import models.Object_;
+import models.SymbolTable;
+import output.ColumnarWriter;
+import output.DeduplicatingWriter;
+import output.GraphWriter;
+import output.IndexWriter;
+import output.JsonStreamWriter;
+import output.ListSink;
+import output.ResultSink;
+import output.ResultWriter;
+import output.ShardedWriter;
 //import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import picocli.CommandLine;
+import processors.DependencyGraph;
+import processors.DependencyExtractor;
+import processors.TypeIndex;
+import processors.Extractor;
+import processors.FusedScanner;
+import processors.ProcessorExtractor;
 import processors.TypeProcessor;
+import services.ClasspathResolver;
+import services.GitSource;
+import services.ServiceFinder;
+import services.ServiceInfo;
 import spoon.Launcher;
 import spoon.OutputType;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.compiler.VirtualFile;
 import ch.qos.logback.classic.Logger;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @CommandLine.Command(name = "st_analyzer", mixinStandardHelpOptions = true, version = "checksum 1.0",
         description = "Statically analyzes a microservices application to generate a list of its classes/methods " +
-                    "with their corresponding source code samples and their microservices.")
+                    "with their corresponding source code samples and their microservices.",
+        subcommands = {Batch.class})
 public class Main implements Callable<Integer> {
+    public enum OutputFormat {
+        json,
+        columnar
+    }
+    public enum Compression {
+        none,
+        gzip
+    }
     public enum LogLevel {
         info("info"),
         debug("debug"),
@@ -46,7 +116,7 @@ public class Main implements Callable<Integer> {
     @CommandLine.Option(
             names = {"-p", "--path"},
             description = "The path to source code of the application",
-            required = true)
+            required = false)
     private String appPath;
 
     @CommandLine.Option(
@@ -64,50 +134,378 @@ public class Main implements Callable<Integer> {
             description = "To specify is the application being analyzed is monolithic or not.",
             required = false, defaultValue = "false")
     private boolean isMonolithic;
+    @CommandLine.Option(
+            names = {"-t", "--threads"},
+            description = "The number of microservices to analyze in parallel (default: 1)",
+            required = false, defaultValue = "1")
+    private int threads;
+    @CommandLine.Option(
+            names = {"-s", "--stream"},
+            description = "Write each type and method to the JSON files as soon as it is extracted instead of " +
+                    "keeping all of them in memory until the end of the analysis.",
+            required = false, defaultValue = "false")
+    private boolean streamOutput;
+    @CommandLine.Option(
+            names = {"-f", "--format"},
+            description = "The output format: \"json\" (default) for typeData.json/methodData.json or " +
+                    "\"columnar\" for the compact binary typeData.bin/methodData.bin (always streamed).",
+            required = false, defaultValue = "json")
+    private OutputFormat outputFormat;
+    @CommandLine.Option(
+            names = {"--compression"},
+            description = "Compress the JSON output files: \"none\" (default) or \"gzip\" for " +
+                    "typeData.json.gz/methodData.json.gz (always streamed). Not used with the columnar format.",
+            required = false, defaultValue = "none")
+    private Compression compression;
+    @CommandLine.Option(
+            names = {"--shard-size"},
+            description = "Write the methods of each microservice to NDJSON files of at most this many records " +
+                    "in the \"methods\" directory, listed with their record counts in methodIndex.json, instead " +
+                    "of methodData.json (default: 0, disabled; always streamed). Not used with the columnar format.",
+            required = false, defaultValue = "0")
+    private int shardSize;
+    @CommandLine.Option(
+            names = {"--dedup"},
+            description = "Store each distinct content once in contentTable.json and only its hash " +
+                    "(\"contentHash\") in the types and methods, and save the groups of contents that are " +
+                    "identical (compared without comments and extra whitespace) or near-identical in " +
+                    "duplicateClusters.json (always streamed). The hash is computed on the content as it is, " +
+                    "not normalized: contents differing only in comments or whitespace get different hashes " +
+                    "and are only grouped in duplicateClusters.json.",
+            required = false, defaultValue = "false")
+    private boolean deduplicate;
+    @CommandLine.Option(
+            names = {"--dedup-threshold"},
+            description = "The estimated similarity (MinHash Jaccard of token shingles) from which two contents " +
+                    "belong to the same group of duplicateClusters.json (default: 0.8).",
+            required = false, defaultValue = "0.8")
+    private double dedupThreshold;
+    @CommandLine.Option(
+            names = {"-c", "--cache"},
+            description = "Reuse the results of the previous runs for the source files that did not change. " +
+                    "The cache is kept in the \".cache\" directory of the output.",
+            required = false, defaultValue = "false")
+    private boolean useCache;
+    @CommandLine.Option(
+            names = {"--model-snapshots"},
+            description = "Save the Spoon model of each microservice in the \".models\" directory of the output " +
+                    "path, keyed by the hash of its source files and classpath, and load it in the later runs on the " +
+                    "same sources instead of parsing them again (e.g. to change the extraction options). Not used " +
+                    "with --cache, --chunk-size or --commit.",
+            required = false, defaultValue = "false")
+    private boolean useModelSnapshots;
+    @CommandLine.Option(
+            names = {"--content"},
+            description = "How the content of the types and methods is extracted: \"printed\" (default) " +
+                    "pretty-prints it with Spoon, \"source\" copies the original text from the source files and " +
+                    "\"reference\" only stores their file path and start/end offsets (see models.ContentReader).",
+            required = false, defaultValue = "printed")
+    private TypeProcessor.ContentMode contentMode;
+    @CommandLine.Option(
+            names = {"--max-content-length"},
+            description = "Truncate the content of each type and method to this many characters " +
+                    "(default: 0, unlimited).",
+            required = false, defaultValue = "0")
+    private int maxContentLength;
+    @CommandLine.Option(
+            names = {"--no-type-content"},
+            description = "Do not store the content of the types, only the content of their methods.",
+            required = false, defaultValue = "false")
+    private boolean noTypeContent;
+    @CommandLine.Option(
+            names = {"--inherited-methods"},
+            description = "How inherited methods are emitted: \"expanded\" (default) repeats the complete " +
+                    "method under every subclass, \"reference\" emits each method body once and only a reference " +
+                    "without content (with \"inheritedFrom\") under the subclasses, which makes methodData.json " +
+                    "smaller.",
+            required = false, defaultValue = "expanded")
+    private TypeProcessor.InheritedMethods inheritedMethods;
+    @CommandLine.Option(
+            names = {"--jmx"},
+            description = "Expose the cumulative analysis metrics as the \"MicroAnalyzer:type=Analysis\" MBean.",
+            required = false, defaultValue = "false")
+    private boolean exposeJmx;
+    @CommandLine.Option(
+            names = {"--chunk-size"},
+            description = "Low-memory mode: build and process the model of each microservice in chunks of this " +
+                    "many source files, dropping each chunk's model once it is processed (default: 0, disabled). " +
+                    "Combine with --stream to keep the heap bounded. Ignored with --cache. The printed code of the " +
+                    "methods inherited from a type of another chunk is kept in a temporary file until the end.",
+            required = false, defaultValue = "0")
+    private int chunkSize;
+    @CommandLine.Option(
+            names = {"--ignore"},
+            description = "A glob of directory names to skip when searching for microservices, in addition to " +
+                    "the build outputs, dependencies and VCS directories (can be repeated).",
+            required = false)
+    private List<String> ignoredDirs = new ArrayList<>();
+    @CommandLine.Option(
+            names = {"--no-gitignore"},
+            description = "Do not skip the directories excluded by .gitignore files when searching for " +
+                    "microservices.",
+            required = false, defaultValue = "false")
+    private boolean noGitignore;
+    @CommandLine.Option(
+            names = {"--index"},
+            description = "Also save dataIndex.bin next to typeData.json and methodData.json: the sorted names of the " +
+                    "types and methods, the methods of each type and the types of each microservice, with the " +
+                    "position of their records in the data files, to look them up without loading the data (see " +
+                    "models.DataIndex). Only with the uncompressed and unsharded JSON output.",
+            required = false, defaultValue = "false")
+    private boolean writeIndex;
+    @CommandLine.Option(
+            names = {"--dependencies"},
+            description = "Also extract the method calls, field accesses and type references between the " +
+                    "analyzed types and methods, saved as dependencyNodes.json and the CSR adjacency file " +
+                    "dependencyGraph.csr. Not supported with --cache.",
+            required = false, defaultValue = "false")
+    private boolean extractDependencies;
+    @CommandLine.Option(
+            names = {"--processing-threads"},
+            description = "The number of threads extracting the types and methods of each model once it is " +
+                    "built (default: 1). Not used with --cache or --chunk-size.",
+            required = false, defaultValue = "1")
+    private int processingThreads;
+    @CommandLine.Option(
+            names = {"--resume"},
+            description = "Save the results of each microservice in the \".checkpoint\" directory of the " +
+                    "output as soon as it is analyzed, and skip the microservices already saved by an " +
+                    "interrupted run with the same options (with --dependencies, their dependency graphs are saved " +
+                    "and restored too). The checkpoint is deleted once the run completes.",
+            required = false, defaultValue = "false")
+    private boolean resume;
+    @CommandLine.Option(
+            names = {"--classpath-repository"},
+            description = "A local Maven or Gradle repository (e.g. ~/.m2/repository or " +
+                    "~/.gradle/caches/modules-2/files-2.1) to resolve the dependency jars of each microservice from " +
+                    "its pom.xml or build.gradle, without network access, so that the framework types can be " +
+                    "resolved (can be repeated). The classpaths are cached in the \".classpaths\" directory of the " +
+                    "output path by build file hash.",
+            required = false)
+    private List<String> classpathRepositories = new ArrayList<>();
+    @CommandLine.Option(
+            names = {"--commit"},
+            description = "Analyze this commit (a hash, branch, tag or any git revision; can be repeated or " +
+                    "comma-separated) straight from the git object store of the repository in --path, without " +
+                    "checking it out. The results of each commit are saved in a directory named after its hash, " +
+                    "reusing those of the files whose blob did not change since the previous commits. --cache, " +
+                    "--resume, --chunk-size, --processing-threads, --dependencies and --classpath-repository " +
+                    "are not used.",
+            required = false, split = ",")
+    private List<String> commits = new ArrayList<>();
+    @CommandLine.Option(
+            names = {"--git-dir"},
+            description = "The git directory to read the commits from, when it is not the one of --path (e.g. a " +
+                    "bare repository).",
+            required = false)
+    private Path gitDir;
 
     private ArrayList<String> serviceNames;
+    private AnalysisCache analysisCache;
+    private ClasspathCache classpathCache;
+    private ModelCache modelCache;
+    private Checkpoint checkpoint;
+    private RunMetrics runMetrics = new RunMetrics(null);
+    private Map<String, ServiceInfo> discoveredServices = new HashMap<>();
+    private Map<String, DependencyGraph> dependencyGraphs = new ConcurrentHashMap<>();
+    private SymbolTable symbolTable = new SymbolTable();
+    private String fileName;
+    private String runLog;
+    private List<String> inputs;
+    private List<String> inputNames;
+
+    @CommandLine.Spec
+    private CommandLine.Model.CommandSpec spec;
 
+    private static final String RUN_LOG_KEY = "runLog";
     private static Logger consoleLogger = (Logger) LoggerFactory.getLogger("consoleLogger");
     private static Logger fileLogger = (Logger) LoggerFactory.getLogger("fileLogger");
 
     @Override
     public Integer call() throws Exception {
-        if (!(logLevel.toString().equals("default")))
-            consoleLogger.setLevel(Level.toLevel(logLevel.toString()));
+        if (appPath == null)
+            throw new CommandLine.ParameterException(spec.commandLine(), "Missing required option: '--path=<appPath>'");
+        prepare();
+        Map<String, String> previousLog = enterRunLog();
+        try {
+            if (!commits.isEmpty()){
+                analyzeCommits();
+            }
+            else {
+                if ((streamOutput)||(outputFormat != OutputFormat.json)||(compression != Compression.none)||
+                        (shardSize > 0)||(deduplicate)){
+                    analyzeAndStream(inputs, inputNames, fileName);
+                }
+                else {
+                    analyzeInMemory(inputs, inputNames, fileName);
+                }
+                finish();
+            }
+        }
+        finally {
+            closeRunLog();
+            restoreRunLog(previousLog);
+        }
+        return null;
+    }
+
+    /**
+     * Sets up the run and finds the microservices to analyze, with their names, in the order of the inputs.
+     */
+    void prepare() throws IOException {
         serviceNames = new ArrayList<>();
         if (outputPath == null){
             outputPath = "./data/java/";
         }
         File f = new File(appPath);
-        String fileName = f.getName();//.replaceFirst("[.][^.]+$", "");
-        consoleLogger.debug("Starting analysis for project " + fileName + " in path " + appPath);
-        fileLogger.debug("Starting analysis for project " + fileName + " in path " + appPath);
+        fileName = f.getName();//.replaceFirst("[.][^.]+$", "");
+        runLog = Paths.get(outputPath, fileName, "logs.log").toAbsolutePath().toString();
+        Map<String, String> previousLog = enterRunLog();
+        try {
+            if (commits.isEmpty())
+                discoverServices();
+        }
+        finally {
+            restoreRunLog(previousLog);
+        }
+    }
+
+    private void discoverServices() throws IOException {
+        consoleLogger.debug("Starting analysis for project {} in path {}", fileName, appPath);
+        fileLogger.debug("Starting analysis for project {} in path {}", fileName, appPath);
+        runMetrics = new RunMetrics(fileName);
+        if (!classpathRepositories.isEmpty()){
+            List<Path> repositories = new ArrayList<>();
+            for (String repository: classpathRepositories){
+                if (repository.startsWith("~"))
+                    repository = System.getProperty("user.home") + repository.substring(1);
+                repositories.add(Paths.get(repository));
+            }
+            classpathCache = new ClasspathCache(Paths.get(outputPath, ".classpaths"),
+                    new ClasspathResolver(repositories));
+        }
+        if (useCache){
+            analysisCache = new AnalysisCache(Paths.get(outputPath, fileName, ".cache"), cacheFingerprint());
+        }
+        if (useModelSnapshots){
+            modelCache = new ModelCache(Paths.get(outputPath, ".models"));
+        }
 
-        ArrayList<String> inputs = new ArrayList<>();
+        PhaseMetrics.Measure discovery = PhaseMetrics.start();
+        inputs = new ArrayList<>();
         if (isMonolithic){
             inputs.add(appPath);
         }
         else {
-            find_src(appPath, inputs, false);
+            ServiceFinder serviceFinder = new ServiceFinder(ignoredDirs, false, !noGitignore);
+            for (ServiceInfo service: serviceFinder.find(Paths.get(appPath))){
+                consoleLogger.debug("Found microservice source root {}", service);
+                fileLogger.debug("Found microservice source root {}", service);
+                inputs.add(service.getSourceRoot().toString());
+                discoveredServices.put(service.getSourceRoot().toString(), service);
+            }
         }
-        ArrayList<Object_> allObjects = new ArrayList<>();
-        ArrayList<Executable_> allMethods = new ArrayList<>();
+        runMetrics.addPhase("discovery", discovery.stop());
+        inputNames = new ArrayList<>();
         int it = 0;
         for (String input_path: inputs){
-            ArrayList<Object_> objects = new ArrayList<Object_>();
-            ArrayList<Executable_> methods = new ArrayList<Executable_>();
-            analyze(input_path, objects, methods, it);
-            allObjects.addAll(objects);
-            allMethods.addAll(methods);
+            String serviceName = resolveServiceName(input_path, it);
+            inputNames.add(serviceName);
+            runMetrics.getService(serviceName, input_path);
             it++;
         }
-        consoleLogger.info("Detected " + allObjects.size() + " classes and interfaces");
-        consoleLogger.info("Detected " + allMethods.size() + " methods");
-        consoleLogger.info("Detected " + serviceNames.size() + " microservices");
+        if (resume){
+            checkpoint = new Checkpoint(Paths.get(outputPath, fileName, ".checkpoint"),
+                    cacheFingerprint() + "-" + isMonolithic + (extractDependencies ? "-dependencies" : ""));
+            int completed = checkpoint.load();
+            consoleLogger.info("Resuming with {} microservices already analyzed", completed);
+            fileLogger.info("Resuming with {} microservices already analyzed", completed);
+        }
+    }
+
+    /**
+     * Saves the outputs produced once every microservice has been analyzed.
+     */
+    void finish() throws Exception {
+        Map<String, String> previousLog = enterRunLog();
+        try {
+            if (extractDependencies)
+                writeDependencies(inputNames, fileName);
+            if (writeIndex)
+                writeIndex(fileName);
+            writeMetrics(fileName);
+            if (checkpoint != null)
+                checkpoint.clear();
+        }
+        finally {
+            restoreRunLog(previousLog);
+        }
+    }
+
+    /**
+     * Sends the messages of the file logger from the current thread to the log file of the run, in its output
+     * directory, and applies the console level of the run to the messages of the thread (see
+     * {@link RunLevelFilter}), until the returned previous context is restored.
+     */
+    private Map<String, String> enterRunLog() {
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        if (runLog != null)
+            MDC.put(RUN_LOG_KEY, runLog);
+        if (logLevel == LogLevel.warning)
+            MDC.put(RunLevelFilter.LEVEL_KEY, Level.WARN.toString());
+        else if (logLevel != LogLevel.defaultlog)
+            MDC.put(RunLevelFilter.LEVEL_KEY, Level.toLevel(logLevel.toString()).toString());
+        return previous;
+    }
+
+    private static void restoreRunLog(Map<String, String> previous) {
+        if (previous == null)
+            MDC.clear();
+        else
+            MDC.setContextMap(previous);
+    }
+
+    /**
+     * Closes the log file of the run once all its messages have been written.
+     */
+    void closeRunLog() {
+        if (runLog == null)
+            return;
+        Map<String, String> previousLog = enterRunLog();
+        fileLogger.debug(ClassicConstants.FINALIZE_SESSION_MARKER, "Closing the log of project {}", fileName);
+        restoreRunLog(previousLog);
+    }
+
+    /**
+     * Analyzes the microservices, keeping all the results in memory, and saves them as JSON at the end.
+     */
+    private void analyzeInMemory(List<String> inputs, List<String> inputNames, String fileName) throws Exception {
+        ArrayList<Object_> allObjects = new ArrayList<>();
+        ArrayList<Executable_> allMethods = new ArrayList<>();
+        if ((threads <= 1)||(inputs.size() <= 1)){
+            for (int i = 0; i < inputs.size(); i++){
+                analyze(inputs.get(i), inputNames.get(i), allObjects, allMethods);
+            }
+        }
+        else {
+            List<Callable<ListSink>> jobs = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++){
+                final String input_path = inputs.get(i);
+                final String serviceName = inputNames.get(i);
+                jobs.add(() -> {
+                    ListSink results = new ListSink(new ArrayList<>(), new ArrayList<>());
+                    analyze(input_path, serviceName, results);
+                    return results;
+                });
+            }
+            runInParallel(jobs, weights(inputs), results -> {
+                allObjects.addAll(results.getObjects());
+                allMethods.addAll(results.getMethods());
+            });
+        }
+        logSummary(allObjects.size(), allMethods.size());
+        PhaseMetrics.Measure output = PhaseMetrics.start();
         consoleLogger.debug("Converting class data to JSON");
-        fileLogger.info("Detected " + allObjects.size() + " classes and interfaces");
-        fileLogger.info("Detected " + allMethods.size() + " methods");
-        fileLogger.info("Detected " + serviceNames.size() + " microservices");
         fileLogger.debug("Converting class data to JSON");
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
         String jsonClasses = gson.toJson(allObjects);
@@ -116,8 +514,8 @@ public class Main implements Callable<Integer> {
         String jsonMethods = gson.toJson(allMethods);
         try {
             String savePath = Paths.get(outputPath, fileName, "typeData.json").toString();
-            consoleLogger.debug("Saving type data in " + savePath);
-            fileLogger.debug("Saving type data in " + savePath);
+            consoleLogger.debug("Saving type data in {}", savePath);
+            fileLogger.debug("Saving type data in {}", savePath);
             File file = new File(savePath);
             file.getParentFile().mkdirs();
             file.createNewFile();
@@ -125,8 +523,8 @@ public class Main implements Callable<Integer> {
             out.println(jsonClasses);
             out.close();
             savePath = Paths.get(outputPath, fileName, "methodData.json").toString();
-            consoleLogger.debug("Saving method data in " + savePath);
-            fileLogger.debug("Saving method data in " + savePath);
+            consoleLogger.debug("Saving method data in {}", savePath);
+            fileLogger.debug("Saving method data in {}", savePath);
             file = new File(savePath);
             file.getParentFile().mkdirs();
             file.createNewFile();
@@ -139,63 +537,910 @@ public class Main implements Callable<Integer> {
             fileLogger.error("Failed to save JSON data");
             throw e;
         }
-        return null;
+        runMetrics.addPhase("output", output.stop());
+    }
+
+    /**
+     * Merges the dependency graphs of the microservices, in the order of the inputs, with the nodes of each one
+     * kept under its name, and saves the result.
+     */
+    private void writeDependencies(List<String> inputNames, String fileName) throws IOException {
+        if (analysisCache != null){
+            consoleLogger.warn("The dependencies are not extracted when the cache is used");
+            fileLogger.warn("The dependencies are not extracted when the cache is used");
+            return;
+        }
+        PhaseMetrics.Measure dependencies = PhaseMetrics.start();
+        DependencyGraph graph = new DependencyGraph();
+        for (String serviceName: inputNames){
+            DependencyGraph serviceGraph = dependencyGraphs.remove(serviceName);
+            if (serviceGraph != null)
+                graph.merge(serviceName, serviceGraph);
+        }
+        Path outputDir = Paths.get(outputPath, fileName);
+        consoleLogger.debug("Saving dependency graph in {}", outputDir);
+        fileLogger.debug("Saving dependency graph in {}", outputDir);
+        GraphWriter.write(graph, outputDir.resolve("dependencyNodes.json"), outputDir.resolve("dependencyGraph.csr"));
+        runMetrics.addPhase("dependencies", dependencies.stop());
+    }
+
+    /**
+     * Saves the lookup index of typeData.json and methodData.json.
+     */
+    private void writeIndex(String fileName) throws IOException {
+        if ((outputFormat != OutputFormat.json)||(compression != Compression.none)||(shardSize > 0)){
+            consoleLogger.warn("The index is only saved for the uncompressed and unsharded JSON output");
+            fileLogger.warn("The index is only saved for the uncompressed and unsharded JSON output");
+            return;
+        }
+        PhaseMetrics.Measure index = PhaseMetrics.start();
+        Path outputDir = Paths.get(outputPath, fileName);
+        consoleLogger.debug("Saving data index in {}", outputDir);
+        fileLogger.debug("Saving data index in {}", outputDir);
+        IndexWriter.write(outputDir);
+        runMetrics.addPhase("index", index.stop());
+    }
+
+    /**
+     * Saves the metrics of the run in "metrics.json" next to the outputs, and publishes them through JMX when
+     * requested.
+     */
+    private void writeMetrics(String fileName) throws Exception {
+        runMetrics.finish();
+        Path metricsPath = Paths.get(outputPath, fileName, "metrics.json");
+        consoleLogger.debug("Saving metrics in {}", metricsPath);
+        fileLogger.debug("Saving metrics in {}", metricsPath);
+        runMetrics.write(metricsPath);
+        if (exposeJmx)
+            AnalysisMetrics.register().record(runMetrics);
     }
 
     public void analyze(String input_path,
                           ArrayList<Object_> objects,
                           ArrayList<Executable_> methods,
-                           int it) {
+                           int it) throws IOException {
+        analyze(input_path, resolveServiceName(input_path, it), objects, methods);
+    }
+
+    public void analyze(String input_path,
+                        String serviceName,
+                        ArrayList<Object_> objects,
+                        ArrayList<Executable_> methods) throws IOException {
+        analyze(input_path, serviceName, new ListSink(objects, methods));
+    }
+
+    public void analyze(String input_path, String serviceName, ResultSink sink) throws IOException {
+        Map<String, String> previousLog = enterRunLog();
+        try {
+            analyzeWithCheckpoint(input_path, serviceName, sink);
+        }
+        finally {
+            restoreRunLog(previousLog);
+        }
+    }
+
+    private void analyzeWithCheckpoint(String input_path, String serviceName, ResultSink sink) throws IOException {
+        if (checkpoint == null){
+            analyzeService(input_path, serviceName, sink);
+            return;
+        }
+        if (checkpoint.isComplete(serviceName, input_path)){
+            consoleLogger.info("Skipping microservice \"{}\" analyzed by a previous run", serviceName);
+            fileLogger.info("Skipping microservice \"{}\" analyzed by a previous run", serviceName);
+            if (extractDependencies){
+                DependencyGraph graph = checkpoint.loadGraph(serviceName);
+                if (graph != null)
+                    dependencyGraphs.put(serviceName, graph);
+                else {
+                    consoleLogger.warn("The dependencies of microservice \"{}\" could not be restored", serviceName);
+                    fileLogger.warn("The dependencies of microservice \"{}\" could not be restored", serviceName);
+                }
+            }
+        }
+        else {
+            JsonStreamWriter results = checkpoint.open(serviceName);
+            try {
+                analyzeService(input_path, serviceName, results);
+            }
+            finally {
+                results.close();
+            }
+            if (extractDependencies)
+                checkpoint.saveGraph(serviceName,
+                        dependencyGraphs.computeIfAbsent(serviceName, name -> new DependencyGraph()));
+            checkpoint.complete(serviceName, input_path, results);
+        }
+        JsonStreamWriter results = checkpoint.get(serviceName);
+        results.forEachObject(sink::addObject);
+        results.forEachMethod(sink::addMethod);
+    }
+
+    /**
+     * Analyzes a microservice and hands its types and methods to the sink.
+     */
+    private void analyzeService(String input_path, String serviceName, ResultSink sink) throws IOException {
+        consoleLogger.debug("Working on microservice \"{}\"", serviceName);
+        fileLogger.debug("Working on microservice \"{}\"", serviceName);
+        ServiceMetrics metrics = runMetrics.getService(serviceName, input_path);
+        if (classpathCache != null){
+            PhaseMetrics.Measure classpath = PhaseMetrics.start();
+            int jars = getClasspath(input_path).size();
+            metrics.addPhase("classpath", classpath.stop());
+            consoleLogger.debug("Using {} dependency jars for microservice \"{}\"", jars, serviceName);
+            fileLogger.debug("Using {} dependency jars for microservice \"{}\"", jars, serviceName);
+        }
+        if (analysisCache != null){
+            analyzeIncrementally(input_path, serviceName, metrics.count(sink), metrics);
+            return;
+        }
+        if (chunkSize > 0){
+            analyzeInChunks(input_path, serviceName, metrics.count(sink), metrics);
+            return;
+        }
+        Factory factory = buildModel(input_path, serviceName, metrics);
+        TypeProcessor typeProcessor = createTypeProcessor(metrics.count(sink), serviceName);
+        FusedScanner scanner = createScanner(serviceName);
+        // logger.info("Starting process");
+        if (processingThreads > 1){
+            runInParallel(factory, scanner, typeProcessor, metrics);
+        }
+        else {
+            scanner.add(new ProcessorExtractor<>(typeProcessor));
+            runScanner(factory, scanner, metrics);
+        }
+        // logger.info("Process finished successfully");
+        consoleLogger.debug("Extracted {} types and {} methods from microservice \"{}\"", metrics.getTypes(),
+                metrics.getMethods(), serviceName);
+        fileLogger.debug("Extracted {} types and {} methods from microservice \"{}\"", metrics.getTypes(),
+                metrics.getMethods(), serviceName);
+    }
+
+    /**
+     * Builds the model and runs all the extractors of the scanner in one walk of the model, measuring each phase
+     * separately.
+     */
+    private void runLauncher(Launcher launcher, FusedScanner scanner, ServiceMetrics metrics) {
+        PhaseMetrics.Measure model = PhaseMetrics.start();
+        launcher.buildModel();
+        metrics.addPhase("model", model.stop());
+        runScanner(launcher.getFactory(), scanner, metrics);
+    }
+
+    private void runScanner(Factory factory, FusedScanner scanner, ServiceMetrics metrics) {
+        PhaseMetrics.Measure processing = PhaseMetrics.start();
+        scanner.run(factory);
+        metrics.addPhase("processing", processing.stop());
+    }
+
+    /**
+     * Builds the model of a microservice, or loads its snapshot with "--model-snapshots" when its sources did
+     * not change since it was saved.
+     */
+    private Factory buildModel(String input_path, String serviceName, ServiceMetrics metrics) throws IOException {
+        String key = null;
+        if (modelCache != null){
+            PhaseMetrics.Measure snapshot = PhaseMetrics.start();
+            key = modelCache.key(Paths.get(input_path), getClasspath(input_path));
+            Factory factory = modelCache.load(key);
+            metrics.addPhase("snapshot", snapshot.stop());
+            if (factory != null){
+                consoleLogger.debug("Loaded the model snapshot {} for microservice \"{}\"", key, serviceName);
+                fileLogger.debug("Loaded the model snapshot {} for microservice \"{}\"", key, serviceName);
+                return factory;
+            }
+        }
+        Launcher launcher = createLauncher(input_path);
+//        consoleLogger.debug("Adding PATH \"" + input_path + "\" as source");
+//        fileLogger.debug("Adding PATH \"" + input_path + "\" as source");
+        launcher.addInputResource(input_path);
+        PhaseMetrics.Measure model = PhaseMetrics.start();
+        launcher.buildModel();
+        metrics.addPhase("model", model.stop());
+        if (key != null){
+            PhaseMetrics.Measure snapshot = PhaseMetrics.start();
+            try {
+                modelCache.save(key, launcher.getFactory());
+                consoleLogger.debug("Saved the model snapshot {} for microservice \"{}\"", key, serviceName);
+                fileLogger.debug("Saved the model snapshot {} for microservice \"{}\"", key, serviceName);
+            }
+            catch (IOException | RuntimeException e){
+                consoleLogger.warn("Failed to save the model snapshot of {}: {}", serviceName, e.toString());
+                fileLogger.warn("Failed to save the model snapshot of {}: {}", serviceName, e.toString());
+            }
+            metrics.addPhase("snapshot", snapshot.stop());
+        }
+        return launcher.getFactory();
+    }
+
+    /**
+     * Runs the other extractors of the scanner on a built model and then extracts the types and methods with
+     * "--processing-threads" threads. The types are collected during the same walk, after their members, so
+     * that they are handled in the same order as by the launcher. The CPU time and the allocations of the
+     * processing phase include those of the worker threads.
+     */
+    private void runInParallel(Factory factory, FusedScanner scanner, TypeProcessor typeProcessor,
+                               ServiceMetrics metrics) throws IOException {
+        PhaseMetrics.Measure processing = PhaseMetrics.start();
+        List<CtType<?>> types = new ArrayList<>();
+        scanner.add(new Extractor() {
+            @Override
+            public Set<Class<? extends CtElement>> getElementTypes() {
+                return Collections.singleton(CtType.class);
+            }
+
+            @Override
+            public void visit(CtElement element) {
+            }
+
+            @Override
+            public void leave(CtElement element) {
+                types.add((CtType<?>) element);
+            }
+        });
+        scanner.run(factory);
+        PhaseMetrics workers;
+        try {
+            workers = typeProcessor.processInParallel(types, processingThreads);
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing the types", e);
+        }
+        catch (ExecutionException e){
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException("Failed to process the types", e.getCause());
+        }
+        PhaseMetrics phase = processing.stop();
+        phase.addWorkers(workers);
+        metrics.addPhase("processing", phase);
+    }
+
+    private Launcher createLauncher(String input_path) {
         Launcher launcher = new Launcher();
         launcher.getEnvironment().setOutputType(OutputType.NO_OUTPUT);
+        List<String> classpath = getClasspath(input_path);
+        if (!classpath.isEmpty())
+            launcher.getEnvironment().setSourceClasspath(classpath.toArray(new String[0]));
         //launcher.getEnvironment().setIgnoreDuplicateDeclarations(true);
-//        consoleLogger.debug("Adding PATH \"" + input_path + "\" as source");
-//        fileLogger.debug("Adding PATH \"" + input_path + "\" as source");
+        return launcher;
+    }
+
+    /**
+     * Returns the dependency classpath of the module containing a microservice (the whole application when it
+     * is monolithic), or an empty list when no local repository was given or the classpath cannot be resolved.
+     */
+    private List<String> getClasspath(String input_path) {
+        if (classpathCache == null)
+            return new ArrayList<>();
+        ServiceInfo service = discoveredServices.get(input_path);
+        Path moduleRoot = (service != null) ? service.getModuleRoot() : Paths.get(input_path);
+        if (moduleRoot == null)
+            return new ArrayList<>();
+        try {
+            return classpathCache.get(moduleRoot);
+        }
+        catch (IOException | RuntimeException e){
+            consoleLogger.warn("Failed to resolve the classpath of {}: {}", moduleRoot, e.toString());
+            fileLogger.warn("Failed to resolve the classpath of {}: {}", moduleRoot, e.toString());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Analyzes a microservice in chunks of "--chunk-size" source files, so that only the model of one chunk is
+     * in memory at a time. A lightweight {@link TypeIndex} of the types is kept to emit, at the end, the methods
+     * inherited from types that were part of other chunks.
+     */
+    private void analyzeInChunks(String input_path, String serviceName, ResultSink sink, ServiceMetrics metrics)
+            throws IOException {
+        List<Path> sourceFiles;
+        try (Stream<Path> paths = Files.walk(Paths.get(input_path))) {
+            sourceFiles = paths.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                    .sorted().collect(Collectors.toList());
+        }
+        try (TypeIndex typeIndex = new TypeIndex()) {
+            typeIndex.setContentMode(contentMode);
+            typeIndex.setInheritedMethods(inheritedMethods);
+            typeIndex.setMaxContentLength(maxContentLength);
+            typeIndex.setSymbolTable(symbolTable);
+            ResultSink trackingSink = typeIndex.track(sink);
+            for (int start = 0; start < sourceFiles.size(); start += chunkSize){
+                List<Path> chunk = sourceFiles.subList(start, Math.min(start + chunkSize, sourceFiles.size()));
+                consoleLogger.debug("Processing files {} to {} of {} for microservice \"{}\"", start + 1,
+                        start + chunk.size(), sourceFiles.size(), serviceName);
+                fileLogger.debug("Processing files {} to {} of {} for microservice \"{}\"", start + 1,
+                        start + chunk.size(), sourceFiles.size(), serviceName);
+                Launcher launcher = createLauncher(input_path);
+                for (Path file: chunk){
+                    launcher.addInputResource(file.toString());
+                }
+                FusedScanner scanner = createScanner(serviceName);
+                scanner.add(new ProcessorExtractor<>(createTypeProcessor(trackingSink, serviceName)));
+                runLauncher(launcher, scanner, metrics);
+                for (CtType<?> ctType: launcher.getModel().getElements(new TypeFilter<>(CtType.class))){
+                    typeIndex.index(ctType);
+                }
+            }
+            PhaseMetrics.Measure inherited = PhaseMetrics.start();
+            int count = typeIndex.emitInheritedMethods(serviceName, trackingSink);
+            metrics.addPhase("inherited", inherited.stop());
+            consoleLogger.debug("Added {} methods inherited across chunks for microservice \"{}\"", count,
+                    serviceName);
+            fileLogger.debug("Added {} methods inherited across chunks for microservice \"{}\"", count,
+                    serviceName);
+            if (typeIndex.getSourceFallbacks() > 0){
+                consoleLogger.warn("{} methods inherited across chunks of microservice \"{}\" have their source " +
+                        "text instead of the printed code", typeIndex.getSourceFallbacks(), serviceName);
+                fileLogger.warn("{} methods inherited across chunks of microservice \"{}\" have their source " +
+                        "text instead of the printed code", typeIndex.getSourceFallbacks(), serviceName);
+            }
+        }
+    }
+
+    private TypeProcessor createTypeProcessor(ResultSink sink, String serviceName) {
+        TypeProcessor typeProcessor = new TypeProcessor(sink, serviceName, logLevel.toString());
+        typeProcessor.setContentMode(contentMode);
+        typeProcessor.setInheritedMethods(inheritedMethods);
+        typeProcessor.setMaxContentLength(maxContentLength);
+        typeProcessor.setTypeContent(!noTypeContent);
+        typeProcessor.setSymbolTable(symbolTable);
+        return typeProcessor;
+    }
+
+    /**
+     * Returns a scanner with the extractors shared by all the analyses (the dependencies, with "--dependencies").
+     */
+    private FusedScanner createScanner(String serviceName) {
+        FusedScanner scanner = new FusedScanner();
+        if (extractDependencies)
+            scanner.add(new DependencyExtractor(
+                    dependencyGraphs.computeIfAbsent(serviceName, name -> new DependencyGraph())));
+        return scanner;
+    }
+
+    /**
+     * Analyzes a microservice using the results cached by the previous runs. Only the files that changed (or
+     * whose dependencies changed) are processed again; they are parsed together with the files declaring their
+     * inherited methods, or with the whole microservice when new files were added since the last run.
+     */
+    private void analyzeIncrementally(String input_path, String serviceName, ResultSink sink,
+                                      ServiceMetrics metrics) throws IOException {
+        PhaseMetrics.Measure cache = PhaseMetrics.start();
+        Map<String, String> hashes = new TreeMap<>();
+        List<Path> sourceFiles;
+        try (Stream<Path> paths = Files.walk(Paths.get(input_path))) {
+            sourceFiles = paths.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                    .collect(Collectors.toList());
+        }
+        for (Path sourceFile: sourceFiles){
+            hashes.put(sourceFile.toFile().getCanonicalPath(), AnalysisCache.hash(sourceFile));
+        }
+        Map<String, AnalysisCache.FileEntry> entries = analysisCache.load(serviceName);
+        metrics.addPhase("cache", cache.stop());
+        if (updateEntries(input_path, serviceName, hashes, entries, Launcher::addInputResource, metrics) > 0)
+            analysisCache.save(serviceName, entries);
+        emitEntries(hashes, entries, serviceName, sink);
+    }
+
+    /**
+     * Hands the cached types and methods of the files to the sink, under the current name of their microservice
+     * (with "--commit", the entries of a source root are reused across commits where its name may differ).
+     */
+    private static void emitEntries(Map<String, String> hashes, Map<String, AnalysisCache.FileEntry> entries,
+                                    String serviceName, ResultSink sink) {
+        for (String file: hashes.keySet()){
+            AnalysisCache.FileEntry entry = entries.get(file);
+            for (Executable_ method_: entry.getMethods()){
+                method_.setServiceName(serviceName);
+                sink.addMethod(method_);
+            }
+            for (Object_ object_: entry.getObjects()){
+                object_.setServiceName(serviceName);
+                sink.addObject(object_);
+            }
+        }
+    }
+
+    /**
+     * Updates the cached entries of a microservice for the current hashes of its files (canonical path to
+     * hash) and returns the number of files analyzed again. The files are added to the launcher by addInput.
+     * The changed files are parsed with the files they depended on, and with the files declaring their current
+     * supertypes (found through the types of the cached entries) until every supertype known to the cache is part
+     * of the model, so that a changed "extends" or "implements" clause is resolved.
+     */
+    private int updateEntries(String input_path, String serviceName, Map<String, String> hashes,
+                              Map<String, AnalysisCache.FileEntry> entries,
+                              BiConsumer<Launcher, String> addInput, ServiceMetrics metrics) throws IOException {
+        entries.keySet().retainAll(hashes.keySet());
+        Set<String> changed = new TreeSet<>();
+        boolean hasNewFiles = false;
+        for (Map.Entry<String, String> file: hashes.entrySet()){
+            AnalysisCache.FileEntry entry = entries.get(file.getKey());
+            if (entry == null){
+                changed.add(file.getKey());
+                hasNewFiles = true;
+            }
+            else if (!entry.isValid(file.getValue(), hashes)){
+                changed.add(file.getKey());
+            }
+        }
+        consoleLogger.debug("Found {} cached files and {} changed files for microservice \"{}\"",
+                hashes.size() - changed.size(), changed.size(), serviceName);
+        fileLogger.debug("Found {} cached files and {} changed files for microservice \"{}\"",
+                hashes.size() - changed.size(), changed.size(), serviceName);
+        if (!changed.isEmpty()){
+            Set<String> toParse = new TreeSet<>(changed);
+            if (hasNewFiles){
+                toParse.addAll(hashes.keySet());
+            }
+            else {
+                for (String file: changed){
+                    addDependencies(file, entries, hashes, toParse);
+                }
+            }
+            Map<String, String> typeFiles = new HashMap<>();
+            for (Map.Entry<String, AnalysisCache.FileEntry> entry: entries.entrySet()){
+                if (changed.contains(entry.getKey()))
+                    continue;
+                for (Object_ object_: entry.getValue().getObjects()){
+                    typeFiles.put(object_.getFullName(), entry.getKey());
+                }
+            }
+            Launcher launcher;
+            do {
+                launcher = createLauncher(input_path);
+                for (String file: toParse){
+                    addInput.accept(launcher, file);
+                }
+                PhaseMetrics.Measure model = PhaseMetrics.start();
+                launcher.buildModel();
+                metrics.addPhase("model", model.stop());
+            } while (addSupertypeFiles(launcher, typeFiles, entries, hashes, toParse));
+            FileGroupingSink grouping = new FileGroupingSink(hashes);
+            TypeProcessor typeProcessor = createTypeProcessor(grouping, serviceName);
+            typeProcessor.setFilesToProcess(changed);
+            runScanner(launcher.getFactory(), new FusedScanner().add(new ProcessorExtractor<>(typeProcessor)),
+                    metrics);
+            for (CtType<?> ctType: launcher.getModel().getElements(new TypeFilter<>(CtType.class))){
+                if ((ctType.getPosition() == null)||(ctType.getPosition().getFile() == null))
+                    continue;
+                String file = ctType.getPosition().getFile().getCanonicalPath();
+                AnalysisCache.FileEntry entry = grouping.getEntries().get(file);
+                if (entry == null)
+                    continue;
+                List<SourcePosition> positions = new ArrayList<>();
+                for (CtMethod<?> method: ctType.getAllMethods()){
+                    positions.add(method.getPosition());
+                }
+                for (CtType<?> supertype: getSupertypes(ctType)){
+                    positions.add(supertype.getPosition());
+                }
+                for (SourcePosition position: positions){
+                    if ((!position.isValidPosition())||(position.getFile() == null))
+                        continue;
+                    String dependency = position.getFile().getCanonicalPath();
+                    if ((!dependency.equals(file))&&(hashes.containsKey(dependency)))
+                        entry.getDependencies().put(dependency, hashes.get(dependency));
+                }
+            }
+            for (String file: changed){
+                AnalysisCache.FileEntry entry = grouping.getEntries().get(file);
+                entries.put(file, (entry != null) ? entry : new AnalysisCache.FileEntry(hashes.get(file)));
+            }
+        }
+        return changed.size();
+    }
+
+    /**
+     * Adds the files a cached file depended on, which still exist, to the files to parse.
+     */
+    private static void addDependencies(String file, Map<String, AnalysisCache.FileEntry> entries,
+                                        Map<String, String> hashes, Set<String> toParse) {
+        AnalysisCache.FileEntry entry = entries.get(file);
+        if (entry == null)
+            return;
+        for (String dependency: entry.getDependencies().keySet()){
+            if (hashes.containsKey(dependency))
+                toParse.add(dependency);
+        }
+    }
+
+    /**
+     * Adds to the files to parse the files declaring the direct supertypes of the types of the model that are not
+     * part of it yet, with the files they depended on, and returns whether any file was added.
+     */
+    private static boolean addSupertypeFiles(Launcher launcher, Map<String, String> typeFiles,
+                                             Map<String, AnalysisCache.FileEntry> entries,
+                                             Map<String, String> hashes, Set<String> toParse) {
+        boolean added = false;
+        for (CtType<?> ctType: launcher.getModel().getElements(new TypeFilter<>(CtType.class))){
+            List<CtTypeReference<?>> references = new ArrayList<>(ctType.getSuperInterfaces());
+            if (ctType.getSuperclass() != null)
+                references.add(ctType.getSuperclass());
+            for (CtTypeReference<?> reference: references){
+                String file = typeFiles.get(reference.getQualifiedName());
+                if ((file != null)&&(toParse.add(file))){
+                    addDependencies(file, entries, hashes, toParse);
+                    added = true;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Returns the declarations of all the supertypes of a type found in the model.
+     */
+    private static Set<CtType<?>> getSupertypes(CtType<?> ctType) {
+        Set<CtType<?>> supertypes = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<CtType<?>> pending = new ArrayList<>(Collections.singletonList(ctType));
+        while (!pending.isEmpty()){
+            CtType<?> current = pending.remove(pending.size() - 1);
+            List<CtTypeReference<?>> references = new ArrayList<>(current.getSuperInterfaces());
+            if (current.getSuperclass() != null)
+                references.add(current.getSuperclass());
+            for (CtTypeReference<?> reference: references){
+                CtType<?> supertype = reference.getTypeDeclaration();
+                if ((supertype != null)&&(supertype != ctType)&&(supertypes.add(supertype)))
+                    pending.add(supertype);
+            }
+        }
+        return supertypes;
+    }
+
+    /**
+     * Analyzes the commits given with "--commit" straight from the git object store of the application. The
+     * files are handed to Spoon as virtual files and the results of each file are kept for the next commits,
+     * with the blob ids as hashes, so that only the files that changed (or whose inherited methods changed) are
+     * analyzed again. The results of each commit are saved in a directory named after its hash, and
+     * "commits.json" summarizes the commits.
+     */
+    private void analyzeCommits() throws IOException {
+        ServiceFinder serviceFinder = new ServiceFinder(ignoredDirs, false, false);
+        Map<String, Map<String, AnalysisCache.FileEntry>> entries = new HashMap<>();
+        List<CommitSummary> summaries = new ArrayList<>();
+        try (GitSource git = GitSource.open(Paths.get(appPath), gitDir)) {
+            for (String commit: commits){
+                summaries.add(analyzeCommit(git, commit, serviceFinder, entries));
+            }
+        }
+        Path summaryPath = Paths.get(outputPath, fileName, "commits.json");
+        Files.createDirectories(summaryPath.getParent());
+        try (Writer writer = Files.newBufferedWriter(summaryPath, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(summaries, writer);
+        }
+    }
+
+    /**
+     * The microservices and files of an analyzed commit.
+     */
+    private static class CommitSummary {
+        private final String revision;
+        private final String commit;
+        private final String output;
+        private int services = 0;
+        private int files = 0;
+        private int analyzedFiles = 0;
+        private long wallMillis;
+
+        private CommitSummary(String revision, String commit, String output) {
+            this.revision = revision;
+            this.commit = commit;
+            this.output = output;
+        }
+    }
+
+    private CommitSummary analyzeCommit(GitSource git, String revision, ServiceFinder serviceFinder,
+                                        Map<String, Map<String, AnalysisCache.FileEntry>> entries)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        runMetrics = new RunMetrics(fileName);
+        serviceNames = new ArrayList<>();
+        discoveredServices.clear();
+        PhaseMetrics.Measure discovery = PhaseMetrics.start();
+        GitSource.Snapshot snapshot = git.snapshot(revision, serviceFinder, isMonolithic);
+        runMetrics.addPhase("discovery", discovery.stop());
+        consoleLogger.info("Analyzing commit {} ({}) with {} microservices", revision, snapshot.getCommitId(),
+                snapshot.getServices().size());
+        fileLogger.info("Analyzing commit {} ({}) with {} microservices", revision, snapshot.getCommitId(),
+                snapshot.getServices().size());
+        Path outputDir = Paths.get(outputPath, fileName, snapshot.getCommitId());
+        CommitSummary summary = new CommitSummary(revision, snapshot.getCommitId(), outputDir.toString());
+        try (ResultWriter writer = createWriter(outputDir)) {
+            int it = 0;
+            for (ServiceInfo service: snapshot.getServices()){
+                String input_path = service.getSourceRoot().toString();
+                discoveredServices.put(input_path, service);
+                String serviceName = resolveServiceName(input_path, it++);
+                ServiceMetrics metrics = runMetrics.getService(serviceName, input_path);
+                Map<String, String> blobIds = snapshot.getBlobIds(service.getSourceRoot());
+                Map<String, AnalysisCache.FileEntry> serviceEntries = entries.computeIfAbsent(input_path,
+                        path -> new HashMap<>());
+                summary.analyzedFiles += updateEntries(input_path, serviceName, blobIds, serviceEntries,
+                        (launcher, file) -> launcher.addInputResource(new VirtualFile(read(snapshot, file), file)),
+                        metrics);
+                emitEntries(blobIds, serviceEntries, serviceName, metrics.count(writer));
+                summary.services++;
+                summary.files += blobIds.size();
+            }
+        }
+        summary.wallMillis = System.currentTimeMillis() - start;
+        consoleLogger.info("Analyzed {} of the {} files of commit {}", summary.analyzedFiles, summary.files,
+                revision);
+        fileLogger.info("Analyzed {} of the {} files of commit {}", summary.analyzedFiles, summary.files,
+                revision);
+        runMetrics.finish();
+        runMetrics.write(outputDir.resolve("metrics.json"));
+        return summary;
+    }
+
+    private static String read(GitSource.Snapshot snapshot, String file) {
+        try {
+            return snapshot.read(file);
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Describes the options that change the extracted results, so that cached results produced with other
+     * options are not reused.
+     */
+    private String cacheFingerprint() {
+        return "v2-" + contentMode + "-" + inheritedMethods + "-" + maxContentLength + "-" + !noTypeContent +
+                (classpathRepositories.isEmpty() ? "" : "-classpath");
+    }
+
+    private ResultWriter createWriter(Path outputDir) throws IOException {
+        boolean compress = compression == Compression.gzip;
+        ResultWriter writer;
+        if (outputFormat == OutputFormat.columnar)
+            writer = new ColumnarWriter(outputDir.resolve("typeData.bin"), outputDir.resolve("methodData.bin"),
+                    contentMode == TypeProcessor.ContentMode.reference, deduplicate);
+        else if (shardSize > 0)
+            writer = new ShardedWriter(outputDir, shardSize, compress);
+        else {
+            String extension = compress ? ".gz" : "";
+            writer = new JsonStreamWriter(outputDir.resolve("typeData.json" + extension),
+                    outputDir.resolve("methodData.json" + extension));
+        }
+        if (deduplicate)
+            return new DeduplicatingWriter(writer, outputDir, dedupThreshold, compress);
+        return writer;
+    }
+
+    /**
+     * Analyzes the microservices while writing their types and methods directly to the output files. When
+     * several threads are used, each microservice is written to its own temporary part files which are then
+     * appended to the output files in the order of the inputs.
+     */
+    private void analyzeAndStream(List<String> inputs, List<String> inputNames, String fileName) throws Exception {
+        Path outputDir = Paths.get(outputPath, fileName);
+        consoleLogger.debug("Streaming {} data to {}", outputFormat, outputDir);
+        fileLogger.debug("Streaming {} data to {}", outputFormat, outputDir);
+        try (ResultWriter writer = createWriter(outputDir)) {
+            if ((threads <= 1)||(inputs.size() <= 1)){
+                for (int i = 0; i < inputs.size(); i++){
+                    analyze(inputs.get(i), inputNames.get(i), writer);
+                }
+            }
+            else {
+                Path partsDir = outputDir.resolve(".parts");
+                List<Callable<JsonStreamWriter>> jobs = new ArrayList<>();
+                for (int i = 0; i < inputs.size(); i++){
+                    final String input_path = inputs.get(i);
+                    final String serviceName = inputNames.get(i);
+                    final int index = i;
+                    jobs.add(() -> analyzePart(partsDir, index, input_path, serviceName));
+                }
+                runInParallel(jobs, weights(inputs), part -> {
+                    PhaseMetrics.Measure output = PhaseMetrics.start();
+                    writer.append(part);
+                    part.delete();
+                    runMetrics.addPhase("output", output.stop());
+                });
+                Files.deleteIfExists(partsDir);
+            }
+            logSummary(writer.getObjectCount(), writer.getMethodCount());
+        }
+        catch (IOException | UncheckedIOException | JsonIOException e){
+            consoleLogger.error("Failed to save {} data", outputFormat);
+            fileLogger.error("Failed to save {} data", outputFormat);
+            throw e;
+        }
+    }
+
+    /**
+     * Analyzes one microservice into its own temporary part files.
+     */
+    private JsonStreamWriter analyzePart(Path partsDir, int index, String input_path, String serviceName)
+            throws IOException {
+        JsonStreamWriter part = new JsonStreamWriter(partsDir.resolve(index + "-typeData.json"),
+                partsDir.resolve(index + "-methodData.json"));
+        try {
+            analyze(input_path, serviceName, part);
+        }
+        finally {
+            part.close();
+        }
+        return part;
+    }
+
+    Path getPartsDir() {
+        return Paths.get(outputPath, fileName, ".parts");
+    }
+
+    /**
+     * Analyzes the microservice at the given index of the inputs into its own part files, to be written with
+     * {@link #writeParts(List)}.
+     */
+    JsonStreamWriter analyzePart(int index) throws IOException {
+        return analyzePart(getPartsDir(), index, inputs.get(index), inputNames.get(index));
+    }
+
+    /**
+     * Writes the outputs from the part files of all the microservices, given in the order of the inputs, and
+     * deletes them.
+     */
+    void writeParts(List<JsonStreamWriter> parts) throws IOException {
+        Path outputDir = Paths.get(outputPath, fileName);
+        Map<String, String> previousLog = enterRunLog();
+        try (ResultWriter writer = createWriter(outputDir)) {
+            PhaseMetrics.Measure output = PhaseMetrics.start();
+            for (JsonStreamWriter part: parts){
+                writer.append(part);
+                part.delete();
+            }
+            Files.deleteIfExists(getPartsDir());
+            runMetrics.addPhase("output", output.stop());
+            logSummary(writer.getObjectCount(), writer.getMethodCount());
+        }
+        catch (IOException | UncheckedIOException | JsonIOException e){
+            consoleLogger.error("Failed to save {} data", outputFormat);
+            fileLogger.error("Failed to save {} data", outputFormat);
+            throw e;
+        }
+        finally {
+            restoreRunLog(previousLog);
+        }
+    }
+
+    /**
+     * Deletes the part files left by the microservices analyzed so far.
+     */
+    void deleteParts() throws IOException {
+        Path partsDir = getPartsDir();
+        if (!Files.isDirectory(partsDir))
+            return;
+        try (Stream<Path> paths = Files.list(partsDir)) {
+            for (Path path: paths.collect(Collectors.toList())){
+                Files.deleteIfExists(path);
+            }
+        }
+        Files.deleteIfExists(partsDir);
+    }
+
+    boolean isAnalyzingCommits() {
+        return !commits.isEmpty();
+    }
+
+    List<String> getInputs() {
+        return inputs;
+    }
+
+    List<String> getInputNames() {
+        return inputNames;
+    }
+
+    String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the total size of the source files of each input.
+     */
+    List<Long> getWeights() {
+        return weights(inputs);
+    }
+
+    private interface ResultHandler<T> {
+        void handle(T result) throws Exception;
+    }
+
+    /**
+     * Returns the total size of the source files of each input, used to schedule the largest microservices first.
+     */
+    private List<Long> weights(List<String> inputs) {
+        List<Long> weights = new ArrayList<>();
+        for (String input_path: inputs){
+            ServiceInfo service = discoveredServices.get(input_path);
+            weights.add((service == null) ? 0L : service.getTotalBytes());
+        }
+        return weights;
+    }
+
+    /**
+     * Runs the given jobs on a bounded pool of "--threads" workers, starting with the heaviest ones, and hands
+     * their results to the handler in the order of the jobs, so that the output does not depend on the
+     * scheduling.
+     */
+    private <T> void runInParallel(List<Callable<T>> jobs, List<Long> weights, ResultHandler<T> handler)
+            throws Exception {
+        int poolSize = Math.min(threads, jobs.size());
+        consoleLogger.debug("Analyzing {} microservices with {} threads", jobs.size(), poolSize);
+        fileLogger.debug("Analyzing {} microservices with {} threads", jobs.size(), poolSize);
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        try {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < jobs.size(); i++){
+                order.add(i);
+            }
+            order.sort(Comparator.comparing((Integer i) -> weights.get(i)).reversed());
+            List<Future<T>> futures = new ArrayList<>(Collections.nCopies(jobs.size(), null));
+            for (int i: order){
+                futures.set(i, executor.submit(jobs.get(i)));
+            }
+            for (Future<T> future: futures){
+                T result;
+                try {
+                    result = future.get();
+                }
+                catch (ExecutionException e){
+                    consoleLogger.error("Failed to analyze a microservice");
+                    fileLogger.error("Failed to analyze a microservice");
+                    if (e.getCause() instanceof Exception)
+                        throw (Exception) e.getCause();
+                    throw e;
+                }
+                handler.handle(result);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void logSummary(long objectCount, long methodCount) {
+        consoleLogger.info("Detected {} classes and interfaces", objectCount);
+        consoleLogger.info("Detected {} methods", methodCount);
+        consoleLogger.info("Detected {} microservices", serviceNames.size());
+        fileLogger.info("Detected {} classes and interfaces", objectCount);
+        fileLogger.info("Detected {} methods", methodCount);
+        fileLogger.info("Detected {} microservices", serviceNames.size());
+    }
+
+    /**
+     * Finds the name of the microservice from its source path and makes it unique among the already named
+     * microservices. It must be called in the order of the inputs to keep the naming deterministic.
+     */
+    public String resolveServiceName(String input_path, int it) {
         Pattern pattern = Pattern.compile(".*/(.*)/src/main/java/?");
         Matcher matcher = pattern.matcher(input_path);
         String serviceName = "NO_NAME_FOUND_" + it;
+        ServiceInfo service = discoveredServices.get(input_path);
         if (matcher.find())
         {
             serviceName = matcher.group(1);
         }
+        else if ((service != null)&&(service.getModuleRoot() != null)&&
+                (service.getModuleRoot().getFileName() != null))
+        {
+            serviceName = service.getModuleRoot().getFileName().toString();
+        }
         if (serviceNames.contains(serviceName)){
             final String sname = serviceName;
             serviceName = serviceName + "_" + serviceNames.stream().filter(p -> p.startsWith(sname)).count();
         }
-        consoleLogger.debug("Working on microservice \"" + serviceName + "\"");
-        fileLogger.debug("Working on microservice \"" + serviceName + "\"");
         serviceNames.add(serviceName);
-        launcher.addInputResource(input_path);
-        TypeProcessor typeProcessor = new TypeProcessor(objects, methods, serviceName, logLevel.toString());
-        launcher.addProcessor(typeProcessor);
-        // logger.info("Starting process");
-        launcher.run();
-        // logger.info("Process finished successfully");
+        return serviceName;
     }
 
-
     public static void find_src(String path, ArrayList found, boolean ignoreTest){
-        File file = new File(path);
-        if (file.isDirectory()){
-            if ((path.endsWith("src"))||(path.endsWith("src/"))){
-                found.add(path+"/main/java");
-            }
-            else {
-                if (ignoreTest&&((path.endsWith("test"))||(path.endsWith("test/")))){
-                    return;
-                }
-                try {
-                    Files.list(file.toPath())
-                            .forEach(p -> {
-                                find_src(p.toString(), found, ignoreTest);
-                            });
-                }
-                catch (IOException e){
-                    return;
-                }
-            }
+        for (ServiceInfo service: new ServiceFinder(new ArrayList<>(), ignoreTest, true).find(Paths.get(path))){
+            found.add(service.getSourceRoot().toString());
         }
-        return;
     }
 
     public static void main(String[] args) throws IOException {
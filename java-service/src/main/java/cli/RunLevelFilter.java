@@ -0,0 +1,29 @@
+package cli;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Applies the console logging level of a run ("--logging") to the messages of the console logger logged by the
+ * threads of that run only, so that the runs of a batch or of the server can use different levels. The level is
+ * read from the "consoleLevel" MDC entry, set by {@link Main} while a run is active; the other messages keep the
+ * level of the logback configuration.
+ */
+public class RunLevelFilter extends TurboFilter {
+    static final String LEVEL_KEY = "consoleLevel";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if ((level == null)||(logger == null)||(!logger.getName().equals("consoleLogger")))
+            return FilterReply.NEUTRAL;
+        String runLevel = MDC.get(LEVEL_KEY);
+        if (runLevel == null)
+            return FilterReply.NEUTRAL;
+        return level.isGreaterOrEqual(Level.toLevel(runLevel)) ? FilterReply.ACCEPT : FilterReply.DENY;
+    }
+}
@@ -0,0 +1,399 @@
+package cli;
+
+import ch.qos.logback.classic.Logger;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a warm JVM running and analyzes the applications submitted over a local HTTP/JSON API. Each job runs
+ * the same command as {@link Main} with its own options and writes its results to disk, from where they can be
+ * downloaded once the job is done.
+ *
+ * <ul>
+ *     <li>POST /jobs: submits a job ({"path": ..., "output": ..., "monolithic": ..., "options": [...]}) or an
+ *     array of jobs, and returns their ids. The jobs are all checked before any of them is queued; when the queue
+ *     fills up during an array, the jobs that could not be queued are returned as {"error": ...} in its place
+ *     (503 when no job was queued)</li>
+ *     <li>GET /jobs: lists the jobs and their status</li>
+ *     <li>GET /jobs/{id}: returns the status of a job</li>
+ *     <li>GET /jobs/{id}/types and GET /jobs/{id}/methods: stream the type and method data of a finished job, as
+ *     typeData.json/methodData.json, their ".json.gz" with "--compression gzip" or their ".bin" with
+ *     "--format columnar". The options writing several files per job ("--shard-size", "--commit") are
+ *     rejected</li>
+ * </ul>
+ */
+@CommandLine.Command(name = "st_analyzer_server", mixinStandardHelpOptions = true, version = "checksum 1.0",
+        description = "Starts a local HTTP server that analyzes microservices applications on demand.")
+public class Server implements Callable<Integer> {
+    @CommandLine.Option(
+            names = {"--host"},
+            description = "The address to listen on (default: 127.0.0.1)",
+            defaultValue = "127.0.0.1")
+    private String host;
+    @CommandLine.Option(
+            names = {"--port"},
+            description = "The port to listen on (default: 8085)",
+            defaultValue = "8085")
+    private int port;
+    @CommandLine.Option(
+            names = {"-j", "--jobs"},
+            description = "The number of jobs to run at the same time (default: 1)",
+            defaultValue = "1")
+    private int concurrentJobs;
+    @CommandLine.Option(
+            names = {"--queue-size"},
+            description = "The maximum number of jobs waiting to be run (default: 1000)",
+            defaultValue = "1000")
+    private int queueSize;
+
+    private static Logger consoleLogger = (Logger) LoggerFactory.getLogger("consoleLogger");
+    private static Logger fileLogger = (Logger) LoggerFactory.getLogger("fileLogger");
+
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Map<Long, Job> jobs = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private ThreadPoolExecutor executor;
+
+    public enum JobStatus {
+        queued,
+        running,
+        done,
+        failed
+    }
+
+    public static class Job {
+        private final long id;
+        private final String path;
+        private final String output;
+        private final boolean monolithic;
+        private final List<String> options;
+        private volatile JobStatus status = JobStatus.queued;
+        private volatile String error;
+        private final long submitted = System.currentTimeMillis();
+        private volatile Long started;
+        private volatile Long finished;
+        private transient String dataExtension = ".json";
+
+        public Job(long id, String path, String output, boolean monolithic, List<String> options) {
+            this.id = id;
+            this.path = path;
+            this.output = output;
+            this.monolithic = monolithic;
+            this.options = options;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public JobStatus getStatus() {
+            return status;
+        }
+
+        /**
+         * The directory where the results are written, following the naming of {@link Main}.
+         */
+        public Path getResultDir() {
+            return Paths.get(output, new File(path).getName());
+        }
+
+        public String[] toArguments() {
+            List<String> arguments = new ArrayList<>();
+            arguments.add("--path");
+            arguments.add(path);
+            arguments.add("--output");
+            arguments.add(output);
+            if (monolithic)
+                arguments.add("--monolithic");
+            arguments.addAll(options);
+            return arguments.toArray(new String[0]);
+        }
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        executor = new ThreadPoolExecutor(concurrentJobs, concurrentJobs, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize));
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/jobs", this::handle);
+        server.start();
+        consoleLogger.info("Listening on http://{}:{} with {} concurrent jobs", host, port, concurrentJobs);
+        fileLogger.info("Listening on http://{}:{} with {} concurrent jobs", host, port, concurrentJobs);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(0);
+            executor.shutdownNow();
+            stopped.countDown();
+        }));
+        stopped.await();
+        return 0;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] parts = exchange.getRequestURI().getPath().replaceAll("/+$", "").split("/");
+            String method = exchange.getRequestMethod();
+            if ((parts.length == 2)&&(method.equals("POST"))){
+                submit(exchange);
+            }
+            else if ((parts.length == 2)&&(method.equals("GET"))){
+                send(exchange, 200, gson.toJsonTree(new ArrayList<>(jobs.values())));
+            }
+            else if ((parts.length >= 3)&&(method.equals("GET"))){
+                Job job = jobs.get(Long.parseLong(parts[2]));
+                if (job == null){
+                    sendError(exchange, 404, "Unknown job " + parts[2]);
+                }
+                else if (parts.length == 3){
+                    send(exchange, 200, gson.toJsonTree(job));
+                }
+                else if ((parts.length == 4)&&(parts[3].equals("types"))){
+                    sendResult(exchange, job, "typeData");
+                }
+                else if ((parts.length == 4)&&(parts[3].equals("methods"))){
+                    sendResult(exchange, job, "methodData");
+                }
+                else {
+                    sendError(exchange, 404, "Unknown resource");
+                }
+            }
+            else {
+                sendError(exchange, 405, "Unsupported request");
+            }
+        }
+        catch (NumberFormatException e){
+            sendError(exchange, 400, "Invalid job id");
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        JsonElement body;
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            body = JsonParser.parseReader(reader);
+        }
+        catch (JsonParseException e){
+            sendError(exchange, 400, "Invalid JSON body");
+            return;
+        }
+        List<JsonObject> requests = new ArrayList<>();
+        if (body.isJsonArray()){
+            for (JsonElement element: body.getAsJsonArray()){
+                if (!element.isJsonObject()){
+                    sendError(exchange, 400, "Every job must be a JSON object");
+                    return;
+                }
+                requests.add(element.getAsJsonObject());
+            }
+        }
+        else if (body.isJsonObject()){
+            requests.add(body.getAsJsonObject());
+        }
+        else {
+            sendError(exchange, 400, "Expected a job or an array of jobs");
+            return;
+        }
+        List<Job> requested = new ArrayList<>();
+        for (JsonObject request: requests){
+            String error = validate(request);
+            if (error != null){
+                sendError(exchange, 400, error);
+                return;
+            }
+            List<String> options = new ArrayList<>();
+            if (request.has("options")){
+                for (JsonElement option: request.getAsJsonArray("options")){
+                    options.add(option.getAsString());
+                }
+            }
+            Job job = new Job(nextId.getAndIncrement(), request.get("path").getAsString(),
+                    request.has("output") ? request.get("output").getAsString() : "./data/java/",
+                    request.has("monolithic") && request.get("monolithic").getAsBoolean(), options);
+            error = checkOptions(job);
+            if (error != null){
+                sendError(exchange, 400, error);
+                return;
+            }
+            requested.add(job);
+        }
+        JsonArray submitted = new JsonArray();
+        int accepted = 0;
+        for (Job job: requested){
+            jobs.put(job.id, job);
+            try {
+                executor.execute(() -> run(job));
+                submitted.add(gson.toJsonTree(job));
+                accepted++;
+            }
+            catch (RejectedExecutionException e){
+                jobs.remove(job.id);
+                JsonObject rejected = new JsonObject();
+                rejected.addProperty("error", "The job queue is full");
+                submitted.add(rejected);
+            }
+        }
+        if ((accepted == 0)&&(!requested.isEmpty())){
+            sendError(exchange, 503, "The job queue is full");
+            return;
+        }
+        send(exchange, 202, body.isJsonArray() ? submitted : submitted.get(0));
+    }
+
+    /**
+     * Checks the types of the fields of a submitted job (or of a job of a {@link Batch} manifest), and returns the
+     * error to report or null.
+     */
+    static String validate(JsonObject request) {
+        if (!isString(request.get("path")))
+            return "Every job requires a \"path\" string";
+        if ((request.has("output"))&&(!isString(request.get("output"))))
+            return "\"output\" must be a string";
+        if ((request.has("monolithic"))&&((!request.get("monolithic").isJsonPrimitive())||
+                (!request.getAsJsonPrimitive("monolithic").isBoolean())))
+            return "\"monolithic\" must be a boolean";
+        if (request.has("options")){
+            if (!request.get("options").isJsonArray())
+                return "\"options\" must be an array of strings";
+            for (JsonElement option: request.getAsJsonArray("options")){
+                if (!isString(option))
+                    return "\"options\" must be an array of strings";
+            }
+        }
+        return null;
+    }
+
+    private static boolean isString(JsonElement element) {
+        return (element != null)&&(element.isJsonPrimitive())&&(element.getAsJsonPrimitive().isString());
+    }
+
+    /**
+     * Parses the command of a job as {@link Main} will, to reject invalid options and the options whose results
+     * cannot be downloaded, and finds the extension of the data files the job will write. Returns the error to
+     * report or null.
+     */
+    private static String checkOptions(Job job) {
+        CommandLine.ParseResult parseResult;
+        try {
+            parseResult = new CommandLine(new Main()).parseArgs(job.toArguments());
+        }
+        catch (CommandLine.ParameterException e){
+            return e.getMessage();
+        }
+        if (parseResult.hasSubcommand())
+            return "Subcommands are not supported in jobs";
+        if ((parseResult.matchedOptionValue("--shard-size", 0) > 0)||(parseResult.hasMatchedOption("--commit")))
+            return "The results of --shard-size and --commit cannot be downloaded and are not supported in jobs";
+        if (parseResult.matchedOptionValue("--format", Main.OutputFormat.json) == Main.OutputFormat.columnar)
+            job.dataExtension = ".bin";
+        else if (parseResult.matchedOptionValue("--compression", Main.Compression.none) == Main.Compression.gzip)
+            job.dataExtension = ".json.gz";
+        return null;
+    }
+
+    private void run(Job job) {
+        job.started = System.currentTimeMillis();
+        job.status = JobStatus.running;
+        consoleLogger.info("Starting job {} for {}", job.id, job.path);
+        fileLogger.info("Starting job {} for {}", job.id, job.path);
+        CommandLine commandLine = new CommandLine(new Main());
+        commandLine.setExecutionExceptionHandler((e, cmd, parseResult) -> {
+            job.error = e.toString();
+            return 1;
+        });
+        commandLine.setParameterExceptionHandler((e, args) -> {
+            job.error = e.getMessage();
+            return 2;
+        });
+        int exitCode;
+        try {
+            exitCode = commandLine.execute(job.toArguments());
+        }
+        catch (RuntimeException e){
+            exitCode = 1;
+            if (job.error == null)
+                job.error = e.toString();
+        }
+        job.finished = System.currentTimeMillis();
+        job.status = (exitCode == 0) ? JobStatus.done : JobStatus.failed;
+        consoleLogger.info("Job {} finished with status {}", job.id, job.status);
+        fileLogger.info("Job {} finished with status {}", job.id, job.status);
+    }
+
+    /**
+     * Streams a data file ("typeData" or "methodData") of a finished job, in the format written by the job.
+     */
+    private void sendResult(HttpExchange exchange, Job job, String dataName) throws IOException {
+        if (job.status != JobStatus.done){
+            sendError(exchange, 409, "Job " + job.id + " is " + job.status);
+            return;
+        }
+        String fileName = dataName + job.dataExtension;
+        Path path = job.getResultDir().resolve(fileName);
+        if (!Files.isRegularFile(path)){
+            sendError(exchange, 404, "No " + fileName + " found for job " + job.id);
+            return;
+        }
+        String contentType = "application/json; charset=utf-8";
+        if (job.dataExtension.equals(".bin"))
+            contentType = "application/octet-stream";
+        else if (job.dataExtension.endsWith(".gz"))
+            contentType = "application/gzip";
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, Files.size(path));
+        try (OutputStream out = exchange.getResponseBody()) {
+            Files.copy(path, out);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        send(exchange, status, error);
+    }
+
+    private void send(HttpExchange exchange, int status, JsonElement body) throws IOException {
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new Server()).execute(args);
+        System.exit(exitCode);
+    }
+}
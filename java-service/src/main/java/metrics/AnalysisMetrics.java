@@ -0,0 +1,105 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * Accumulates the metrics of all the runs of this JVM and exposes them as the "MicroAnalyzer:type=Analysis"
+ * MBean, which is mostly useful for long-running servers and batches.
+ */
+public class AnalysisMetrics implements AnalysisMetricsMBean {
+    private static final AnalysisMetrics instance = new AnalysisMetrics();
+    private static boolean registered = false;
+
+    private long runs = 0;
+    private long services = 0;
+    private long types = 0;
+    private long methods = 0;
+    private double discoveryMillis = 0;
+    private double modelBuildMillis = 0;
+    private double processingMillis = 0;
+    private double outputMillis = 0;
+    private double lastRunMillis = 0;
+
+    private AnalysisMetrics() {
+    }
+
+    /**
+     * Registers the MBean on the platform MBean server, once per JVM.
+     */
+    public static synchronized AnalysisMetrics register() throws JMException {
+        if (!registered){
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(instance, new ObjectName("MicroAnalyzer:type=Analysis"));
+            registered = true;
+        }
+        return instance;
+    }
+
+    public synchronized void record(RunMetrics run) {
+        runs++;
+        lastRunMillis = run.getWallMillis();
+        discoveryMillis += wallMillis(run.getPhases(), "discovery");
+        outputMillis += wallMillis(run.getPhases(), "output");
+        for (ServiceMetrics service: run.getServices()){
+            services++;
+            types += service.getTypes();
+            methods += service.getMethods();
+            modelBuildMillis += wallMillis(service.getPhases(), "model");
+            processingMillis += wallMillis(service.getPhases(), "processing");
+        }
+    }
+
+    private static double wallMillis(Map<String, PhaseMetrics> phases, String phase) {
+        PhaseMetrics metrics = phases.get(phase);
+        return (metrics == null) ? 0 : metrics.getWallMillis();
+    }
+
+    @Override
+    public synchronized long getRuns() {
+        return runs;
+    }
+
+    @Override
+    public synchronized long getServices() {
+        return services;
+    }
+
+    @Override
+    public synchronized long getTypes() {
+        return types;
+    }
+
+    @Override
+    public synchronized long getMethods() {
+        return methods;
+    }
+
+    @Override
+    public synchronized double getDiscoveryMillis() {
+        return discoveryMillis;
+    }
+
+    @Override
+    public synchronized double getModelBuildMillis() {
+        return modelBuildMillis;
+    }
+
+    @Override
+    public synchronized double getProcessingMillis() {
+        return processingMillis;
+    }
+
+    @Override
+    public synchronized double getOutputMillis() {
+        return outputMillis;
+    }
+
+    @Override
+    public synchronized double getLastRunMillis() {
+        return lastRunMillis;
+    }
+}
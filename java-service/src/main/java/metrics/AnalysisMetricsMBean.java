@@ -0,0 +1,24 @@
+package metrics;
+
+/**
+ * The cumulative analysis metrics exposed through JMX.
+ */
+public interface AnalysisMetricsMBean {
+    long getRuns();
+
+    long getServices();
+
+    long getTypes();
+
+    long getMethods();
+
+    double getDiscoveryMillis();
+
+    double getModelBuildMillis();
+
+    double getProcessingMillis();
+
+    double getOutputMillis();
+
+    double getLastRunMillis();
+}
@@ -0,0 +1,95 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The wall time, CPU time and allocated bytes spent in one phase of the analysis. The CPU time and the
+ * allocations are measured on the current thread, so a phase must start and stop on the same thread; the work
+ * that a phase hands to other threads is measured on each of them and added with {@link #addWorkers}. They are
+ * reported as -1 when the JVM does not support measuring them.
+ */
+public class PhaseMetrics {
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private double wallMillis = 0;
+    private double cpuMillis = 0;
+    private long allocatedBytes = 0;
+    private int count = 0;
+
+    public double getWallMillis() {
+        return wallMillis;
+    }
+
+    public double getCpuMillis() {
+        return cpuMillis;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * A running measurement of a phase.
+     */
+    public static class Measure {
+        private final long wallStart = System.nanoTime();
+        private final long cpuStart = cpuTime();
+        private final long allocatedStart = allocatedBytes();
+
+        public PhaseMetrics stop() {
+            PhaseMetrics metrics = new PhaseMetrics();
+            metrics.wallMillis = (System.nanoTime() - wallStart) / 1e6;
+            long cpu = cpuTime();
+            metrics.cpuMillis = ((cpu < 0)||(cpuStart < 0)) ? -1 : (cpu - cpuStart) / 1e6;
+            long allocated = allocatedBytes();
+            metrics.allocatedBytes = ((allocated < 0)||(allocatedStart < 0)) ? -1 : allocated - allocatedStart;
+            metrics.count = 1;
+            return metrics;
+        }
+    }
+
+    public static Measure start() {
+        return new Measure();
+    }
+
+    /**
+     * Adds the values of another measurement of the same phase.
+     */
+    public synchronized void add(PhaseMetrics other) {
+        wallMillis += other.wallMillis;
+        cpuMillis = ((cpuMillis < 0)||(other.cpuMillis < 0)) ? -1 : cpuMillis + other.cpuMillis;
+        allocatedBytes = ((allocatedBytes < 0)||(other.allocatedBytes < 0)) ? -1 :
+                allocatedBytes + other.allocatedBytes;
+        count += other.count;
+    }
+
+    /**
+     * Adds the CPU time and the allocations of measurements taken on the worker threads of this phase, while it
+     * was running. Their wall time overlaps the phase and is not added.
+     */
+    public synchronized void addWorkers(PhaseMetrics workers) {
+        cpuMillis = ((cpuMillis < 0)||(workers.cpuMillis < 0)) ? -1 : cpuMillis + workers.cpuMillis;
+        allocatedBytes = ((allocatedBytes < 0)||(workers.allocatedBytes < 0)) ? -1 :
+                allocatedBytes + workers.allocatedBytes;
+    }
+
+    private static long cpuTime() {
+        if (!threadBean.isCurrentThreadCpuTimeSupported())
+            return -1;
+        return threadBean.getCurrentThreadCpuTime();
+    }
+
+    private static long allocatedBytes() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean){
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled())
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
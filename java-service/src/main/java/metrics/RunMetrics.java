@@ -0,0 +1,87 @@
+package metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The metrics of a whole run: the global phases (discovery and output) and the metrics of each microservice,
+ * in the order of the inputs.
+ */
+public class RunMetrics {
+    private final String project;
+    private final long wallStart = System.nanoTime();
+    private double wallMillis = 0;
+    private final Map<String, PhaseMetrics> phases = new LinkedHashMap<>();
+    private final Map<String, ServiceMetrics> services = new LinkedHashMap<>();
+
+    public RunMetrics(String project) {
+        this.project = project;
+    }
+
+    public synchronized void addPhase(String phase, PhaseMetrics metrics) {
+        phases.computeIfAbsent(phase, p -> new PhaseMetrics()).add(metrics);
+    }
+
+    public synchronized Map<String, PhaseMetrics> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    /**
+     * Returns the metrics of a microservice, creating them if needed.
+     */
+    public synchronized ServiceMetrics getService(String serviceName, String path) {
+        return services.computeIfAbsent(serviceName, s -> new ServiceMetrics(serviceName, path));
+    }
+
+    public synchronized List<ServiceMetrics> getServices() {
+        return new ArrayList<>(services.values());
+    }
+
+    public synchronized double getWallMillis() {
+        return wallMillis;
+    }
+
+    public synchronized void finish() {
+        wallMillis = (System.nanoTime() - wallStart) / 1e6;
+    }
+
+    public synchronized JsonObject toJson() {
+        Gson gson = new Gson();
+        JsonObject json = new JsonObject();
+        json.addProperty("project", project);
+        json.addProperty("wallMillis", wallMillis);
+        long types = 0;
+        long methods = 0;
+        JsonArray servicesJson = new JsonArray();
+        for (ServiceMetrics service: services.values()){
+            types += service.getTypes();
+            methods += service.getMethods();
+            servicesJson.add(gson.toJsonTree(service));
+        }
+        json.addProperty("types", types);
+        json.addProperty("methods", methods);
+        json.add("phases", gson.toJsonTree(phases));
+        json.add("services", servicesJson);
+        return json;
+    }
+
+    public void write(Path path) throws IOException {
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(toJson(), writer);
+        }
+    }
+}
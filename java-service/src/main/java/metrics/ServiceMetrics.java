@@ -0,0 +1,65 @@
+package metrics;
+
+import models.Executable_;
+import models.Object_;
+import output.ResultSink;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of the analysis of one microservice: the phases it went through and the number of types and
+ * methods it produced.
+ */
+public class ServiceMetrics {
+    private final String serviceName;
+    private final String path;
+    private final AtomicLong types = new AtomicLong();
+    private final AtomicLong methods = new AtomicLong();
+    private final Map<String, PhaseMetrics> phases = new LinkedHashMap<>();
+
+    public ServiceMetrics(String serviceName, String path) {
+        this.serviceName = serviceName;
+        this.path = path;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public long getTypes() {
+        return types.get();
+    }
+
+    public long getMethods() {
+        return methods.get();
+    }
+
+    public synchronized Map<String, PhaseMetrics> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public synchronized void addPhase(String phase, PhaseMetrics metrics) {
+        phases.computeIfAbsent(phase, p -> new PhaseMetrics()).add(metrics);
+    }
+
+    /**
+     * Wraps a sink to count the types and methods that go through it.
+     */
+    public ResultSink count(ResultSink sink) {
+        return new ResultSink() {
+            @Override
+            public void addObject(Object_ object_) {
+                types.incrementAndGet();
+                sink.addObject(object_);
+            }
+
+            @Override
+            public void addMethod(Executable_ method_) {
+                methods.incrementAndGet();
+                sink.addMethod(method_);
+            }
+        };
+    }
+}
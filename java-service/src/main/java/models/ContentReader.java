@@ -0,0 +1,76 @@
+package models;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Loads the content of types and methods on demand from the source tree, for the results extracted with only
+ * references to their code (a file path and start/end character offsets). The most recently read files are
+ * kept in memory since the entities of a file are usually read together.
+ */
+public class ContentReader {
+    private static final int CACHED_FILES = 16;
+
+    private final Path baseDir;
+    private final Map<String, String> sources = new LinkedHashMap<String, String>(CACHED_FILES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHED_FILES;
+        }
+    };
+
+    public ContentReader() {
+        this(null);
+    }
+
+    /**
+     * Creates a reader that resolves the relative file paths against the given directory.
+     */
+    public ContentReader(Path baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Returns the content of the type: the stored content if any, otherwise the code referenced by its file path
+     * and offsets, or null when there is neither.
+     */
+    public String read(Object_ object_) throws IOException {
+        if (object_.getContent() != null)
+            return object_.getContent();
+        return read(object_.getFilePath(), object_.getStartOffset(), object_.getEndOffset());
+    }
+
+    /**
+     * Returns the content of the method: the stored content if any, otherwise the code referenced by its file
+     * path and offsets, or null when there is neither (e.g. for inherited method references).
+     */
+    public String read(Executable_ method_) throws IOException {
+        if (method_.getContent() != null)
+            return method_.getContent();
+        return read(method_.getFilePath(), method_.getStartOffset(), method_.getEndOffset());
+    }
+
+    /**
+     * Returns the characters of the file between the start offset (inclusive) and the end offset (exclusive).
+     */
+    public synchronized String read(String filePath, Integer startOffset, Integer endOffset) throws IOException {
+        if ((filePath == null)||(startOffset == null)||(endOffset == null))
+            return null;
+        String source = sources.get(filePath);
+        if (source == null){
+            Path path = Paths.get(filePath);
+            if ((baseDir != null)&&(!path.isAbsolute()))
+                path = baseDir.resolve(path);
+            source = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            sources.put(filePath, source);
+        }
+        if ((startOffset < 0)||(endOffset > source.length())||(startOffset > endOffset))
+            throw new IOException("Invalid range [" + startOffset + ", " + endOffset + ") for " + filePath);
+        return source.substring(startOffset, endOffset);
+    }
+}
@@ -0,0 +1,348 @@
+package models;
+
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers lookups on "typeData.json" and "methodData.json" through the "dataIndex.bin" file saved next to them
+ * (see output.IndexWriter), without loading the whole data: the index is memory-mapped and only the matching
+ * records are read from the data files. The index (big-endian) holds:
+ * <ul>
+ *     <li>the magic "MAIDX1"</li>
+ *     <li>the names (full names, parent names and microservice names) sorted by their UTF-8 bytes: their count
+ *     n, the n + 1 offsets of their bytes and the bytes</li>
+ *     <li>the types then the methods: their count and the offset (long) and length (int) in bytes of each record
+ *     in its data file, in the order of the file</li>
+ *     <li>four tables of (name id, record) pairs sorted by name then record: the types by full name, the methods
+ *     by full name, the methods by parent name and the types by microservice name, each as its size m, the m
+ *     name ids and the m records</li>
+ * </ul>
+ */
+public class DataIndex implements Closeable {
+    public static final String INDEX_FILE = "dataIndex.bin";
+    public static final String TYPE_FILE = "typeData.json";
+    public static final String METHOD_FILE = "methodData.json";
+    public static final byte[] MAGIC = "MAIDX1".getBytes(StandardCharsets.US_ASCII);
+
+    private final Gson gson = new Gson();
+    private final FileChannel indexChannel;
+    private final FileChannel typeChannel;
+    private final FileChannel methodChannel;
+    private final MappedByteBuffer index;
+    private final int nameCount;
+    private final int nameOffsets;
+    private final int nameBytes;
+    private final Records types;
+    private final Records methods;
+    private final Table typesByName;
+    private final Table methodsByName;
+    private final Table methodsByParent;
+    private final Table typesByService;
+
+    /**
+     * The positions of the records of a data file.
+     */
+    private static class Records {
+        private final int count;
+        private final int offsets;
+        private final int lengths;
+
+        private Records(int count, int offsets) {
+            this.count = count;
+            this.offsets = offsets;
+            this.lengths = offsets + 8 * count;
+        }
+
+        private int end() {
+            return lengths + 4 * count;
+        }
+    }
+
+    /**
+     * A table of (name id, record) pairs.
+     */
+    private static class Table {
+        private final int size;
+        private final int keys;
+        private final int records;
+
+        private Table(int size, int keys) {
+            this.size = size;
+            this.keys = keys;
+            this.records = keys + 4 * size;
+        }
+
+        private int end() {
+            return records + 4 * size;
+        }
+    }
+
+    private DataIndex(Path outputDir) throws IOException {
+        Path indexPath = outputDir.resolve(INDEX_FILE);
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ);
+        try {
+            index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            byte[] magic = new byte[MAGIC.length];
+            index.duplicate().get(magic);
+            if (!Arrays.equals(magic, MAGIC))
+                throw new IOException("Not a data index: " + indexPath);
+            int position = MAGIC.length;
+            nameCount = index.getInt(position);
+            nameOffsets = position + 4;
+            nameBytes = nameOffsets + 4 * (nameCount + 1);
+            position = nameBytes + index.getInt(nameOffsets + 4 * nameCount);
+            types = new Records(index.getInt(position), position + 4);
+            methods = new Records(index.getInt(types.end()), types.end() + 4);
+            typesByName = new Table(index.getInt(methods.end()), methods.end() + 4);
+            methodsByName = new Table(index.getInt(typesByName.end()), typesByName.end() + 4);
+            methodsByParent = new Table(index.getInt(methodsByName.end()), methodsByName.end() + 4);
+            typesByService = new Table(index.getInt(methodsByParent.end()), methodsByParent.end() + 4);
+            typeChannel = FileChannel.open(outputDir.resolve(TYPE_FILE), StandardOpenOption.READ);
+        }
+        catch (IOException | RuntimeException e){
+            indexChannel.close();
+            throw e;
+        }
+        try {
+            methodChannel = FileChannel.open(outputDir.resolve(METHOD_FILE), StandardOpenOption.READ);
+        }
+        catch (IOException e){
+            indexChannel.close();
+            typeChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the index saved in an output directory, next to its data files.
+     */
+    public static DataIndex open(Path outputDir) throws IOException {
+        return new DataIndex(outputDir);
+    }
+
+    public int getTypeCount() {
+        return types.count;
+    }
+
+    public int getMethodCount() {
+        return methods.count;
+    }
+
+    /**
+     * Returns the types with this full name (usually one).
+     */
+    public List<Object_> getTypes(String fullName) throws IOException {
+        List<Object_> found = new ArrayList<>();
+        for (int record: find(typesByName, fullName)){
+            found.add(readType(record));
+        }
+        return found;
+    }
+
+    /**
+     * Returns the methods with this full name ("Type::signature"), usually one.
+     */
+    public List<Executable_> getMethods(String fullName) throws IOException {
+        List<Executable_> found = new ArrayList<>();
+        for (int record: find(methodsByName, fullName)){
+            found.add(readMethod(record));
+        }
+        return found;
+    }
+
+    /**
+     * Returns the methods of a type, in the order of the data file.
+     */
+    public List<Executable_> getMethodsOf(String parentName) throws IOException {
+        List<Executable_> found = new ArrayList<>();
+        for (int record: find(methodsByParent, parentName)){
+            found.add(readMethod(record));
+        }
+        return found;
+    }
+
+    /**
+     * Returns the types of a microservice, in the order of the data file.
+     */
+    public List<Object_> getTypesOf(String serviceName) throws IOException {
+        List<Object_> found = new ArrayList<>();
+        for (int record: find(typesByService, serviceName)){
+            found.add(readType(record));
+        }
+        return found;
+    }
+
+    /**
+     * Returns the full names of the types starting with a prefix (e.g. a package), in sorted order.
+     */
+    public List<String> findTypeNames(String prefix) {
+        return findNames(typesByName, prefix);
+    }
+
+    /**
+     * Returns the full names of the methods starting with a prefix (e.g. "Type::"), in sorted order.
+     */
+    public List<String> findMethodNames(String prefix) {
+        return findNames(methodsByName, prefix);
+    }
+
+    /**
+     * Reads a type by its position in "typeData.json".
+     */
+    public Object_ readType(int record) throws IOException {
+        return gson.fromJson(read(typeChannel, types, record), Object_.class);
+    }
+
+    /**
+     * Reads a method by its position in "methodData.json".
+     */
+    public Executable_ readMethod(int record) throws IOException {
+        return gson.fromJson(read(methodChannel, methods, record), Executable_.class);
+    }
+
+    private String read(FileChannel channel, Records records, int record) throws IOException {
+        if ((record < 0)||(record >= records.count))
+            throw new IndexOutOfBoundsException("No record " + record);
+        long position = index.getLong(records.offsets + 8 * record);
+        ByteBuffer buffer = ByteBuffer.allocate(index.getInt(records.lengths + 4 * record));
+        while (buffer.hasRemaining()){
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Truncated data file for record " + record);
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the records of a table with exactly this name.
+     */
+    private int[] find(Table table, String name) {
+        int id = nameId(name);
+        if (id < 0)
+            return new int[0];
+        int start = lowerBound(table, id);
+        int end = lowerBound(table, id + 1);
+        int[] records = new int[end - start];
+        for (int i = start; i < end; i++){
+            records[i - start] = index.getInt(table.records + 4 * i);
+        }
+        return records;
+    }
+
+    private List<String> findNames(Table table, String prefix) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        int first = firstName(bytes);
+        int last = first;
+        int high = nameCount;
+        while (last < high){
+            int middle = (last + high) >>> 1;
+            if (startsWith(middle, bytes))
+                last = middle + 1;
+            else
+                high = middle;
+        }
+        List<String> names = new ArrayList<>();
+        int previous = -1;
+        for (int i = lowerBound(table, first), end = lowerBound(table, last); i < end; i++){
+            int id = index.getInt(table.keys + 4 * i);
+            if (id != previous)
+                names.add(name(id));
+            previous = id;
+        }
+        return names;
+    }
+
+    /**
+     * Returns the position of the first pair of a table whose name id is at least the given id.
+     */
+    private int lowerBound(Table table, int id) {
+        int low = 0;
+        int high = table.size;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (index.getInt(table.keys + 4 * middle) < id)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private int nameId(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int id = firstName(bytes);
+        if ((id < nameCount)&&(compare(id, bytes) == 0))
+            return id;
+        return -1;
+    }
+
+    /**
+     * Returns the id of the first name that is not smaller than the given bytes.
+     */
+    private int firstName(byte[] bytes) {
+        int low = 0;
+        int high = nameCount;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (compare(middle, bytes) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private int compare(int id, byte[] bytes) {
+        int start = nameBytes + index.getInt(nameOffsets + 4 * id);
+        int length = nameBytes + index.getInt(nameOffsets + 4 * (id + 1)) - start;
+        for (int i = 0; (i < length)&&(i < bytes.length); i++){
+            int difference = (index.get(start + i) & 0xff) - (bytes[i] & 0xff);
+            if (difference != 0)
+                return difference;
+        }
+        return length - bytes.length;
+    }
+
+    private boolean startsWith(int id, byte[] prefix) {
+        int start = nameBytes + index.getInt(nameOffsets + 4 * id);
+        int length = nameBytes + index.getInt(nameOffsets + 4 * (id + 1)) - start;
+        if (length < prefix.length)
+            return false;
+        for (int i = 0; i < prefix.length; i++){
+            if (index.get(start + i) != prefix[i])
+                return false;
+        }
+        return true;
+    }
+
+    private String name(int id) {
+        int start = nameBytes + index.getInt(nameOffsets + 4 * id);
+        byte[] bytes = new byte[nameBytes + index.getInt(nameOffsets + 4 * (id + 1)) - start];
+        ByteBuffer view = index.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            typeChannel.close();
+            methodChannel.close();
+        }
+        finally {
+            indexChannel.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package models;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes {@link Executable_} with the same JSON fields, in the same order, as the plain reflective
+ * serialization of its former string fields, building the full names only while writing them. The methods read
+ * by an adapter (one per Gson instance) share its symbol table.
+ */
+public class ExecutableAdapter extends TypeAdapter<Executable_> {
+    private final SymbolTable symbols = new SymbolTable();
+
+    @Override
+    public void write(JsonWriter out, Executable_ method_) throws IOException {
+        if (method_ == null){
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("fullName").value(method_.getFullName());
+        out.name("simpleName").value(method_.getSimpleName());
+        out.name("parentName").value(method_.getParentName());
+        out.name("serviceName").value(method_.getServiceName());
+        out.name("content").value(method_.getContent());
+        out.name("contentHash").value(method_.getContentHash());
+        out.name("inheritedFrom").value(method_.getInheritedFrom());
+        out.name("filePath").value(method_.getFilePath());
+        out.name("startOffset").value(method_.getStartOffset());
+        out.name("endOffset").value(method_.getEndOffset());
+        out.endObject();
+    }
+
+    @Override
+    public Executable_ read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL){
+            in.nextNull();
+            return null;
+        }
+        Executable_ method_ = new Executable_(symbols);
+        in.beginObject();
+        while (in.hasNext()){
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL){
+                in.nextNull();
+                continue;
+            }
+            switch (name){
+                case "fullName":
+                    method_.setFullName(in.nextString());
+                    break;
+                case "simpleName":
+                    method_.setSimpleName(in.nextString());
+                    break;
+                case "parentName":
+                    method_.setParentName(in.nextString());
+                    break;
+                case "serviceName":
+                    method_.setServiceName(in.nextString());
+                    break;
+                case "content":
+                    method_.setContent(in.nextString());
+                    break;
+                case "contentHash":
+                    method_.setContentHash(in.nextString());
+                    break;
+                case "inheritedFrom":
+                    method_.setInheritedFrom(in.nextString());
+                    break;
+                case "filePath":
+                    method_.setFilePath(in.nextString());
+                    break;
+                case "startOffset":
+                    method_.setStartOffset(in.nextInt());
+                    break;
+                case "endOffset":
+                    method_.setEndOffset(in.nextInt());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return method_;
+    }
+}
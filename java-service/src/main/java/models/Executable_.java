@@ -1,11 +1,41 @@
 package models;
 
+import com.google.gson.annotations.JsonAdapter;
+
+/**
+ * A method or constructor. The names are kept as ids of the {@link SymbolTable} it was created with: the parent
+ * type, the microservice and the signature are shared with the other entities of the run, and the full names
+ * ("Type::signature") are only built when they are requested.
+ */
+@JsonAdapter(ExecutableAdapter.class)
 public class Executable_ {
-    private String fullName;
+    private final SymbolTable symbols;
+    private int qualifierId = -1;
+    private int signatureId = -1;
     private String simpleName;
-    private String parentName;
-    private String serviceName;
+    private int parentId = -1;
+    private int serviceId = -1;
     private String content;
+    private String contentHash;
+    private int inheritedQualifierId = -1;
+    private int inheritedSignatureId = -1;
+    private int fileId = -1;
+    private int startOffset = -1;
+    private int endOffset = -1;
+
+    /**
+     * Creates a method with a symbol table of its own.
+     */
+    public Executable_() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * Creates a method whose names are kept in the given symbol table, usually the one of the run.
+     */
+    public Executable_(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
 
     public String getContent() {
         return content;
@@ -15,12 +45,33 @@ public class Executable_ {
         this.content = content;
     }
 
+    /**
+     * Returns the hash of the content in the deduplicated content table, or null when the content is stored
+     * inline.
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public String getFullName() {
-        return fullName;
+        return fullName(qualifierId, signatureId);
     }
 
     public void setFullName(String fullName) {
-        this.fullName = fullName;
+        int separator = (fullName == null) ? -1 : fullName.indexOf("::");
+        qualifierId = (separator < 0) ? -1 : symbols.getTypes().intern(fullName.substring(0, separator));
+        signatureId = symbols.getSignatures().intern((separator < 0) ? fullName : fullName.substring(separator + 2));
+    }
+
+    /**
+     * Returns the signature of the method, its full name without the qualified name of its type.
+     */
+    public String getSignature() {
+        return symbols.getSignatures().get(signatureId);
     }
 
     public String getSimpleName() {
@@ -28,21 +79,83 @@ public class Executable_ {
     }
 
     public void setSimpleName(String simpleName) {
-        this.simpleName = simpleName;
+        this.simpleName = symbols.getNames().canonical(simpleName);
     }
 
     public String getParentName() {
-        return parentName;
+        return symbols.getTypes().get(parentId);
     }
 
     public void setParentName(String parentName) {
-        this.parentName = parentName;
+        this.parentId = symbols.getTypes().intern(parentName);
+    }
+
+    /**
+     * Returns the id of the parent type in the types of the symbol table, which is also the id of its
+     * {@link Object_} when it was created with the same table.
+     */
+    public int getParentId() {
+        return parentId;
     }
+
     public String getServiceName() {
-        return serviceName;
+        return symbols.getServices().get(serviceId);
     }
 
     public void setServiceName(String serviceName) {
-        this.serviceName = serviceName;
+        this.serviceId = symbols.getServices().intern(serviceName);
+    }
+
+    public String getInheritedFrom() {
+        return fullName(inheritedQualifierId, inheritedSignatureId);
+    }
+
+    public void setInheritedFrom(String inheritedFrom) {
+        int separator = (inheritedFrom == null) ? -1 : inheritedFrom.indexOf("::");
+        inheritedQualifierId = (separator < 0) ? -1 : symbols.getTypes().intern(inheritedFrom.substring(0, separator));
+        inheritedSignatureId = symbols.getSignatures().intern(
+                (separator < 0) ? inheritedFrom : inheritedFrom.substring(separator + 2));
+    }
+
+    /**
+     * Returns the path of the file declaring the method when only a reference to its content was stored.
+     */
+    public String getFilePath() {
+        return symbols.getFiles().get(fileId);
+    }
+
+    public void setFilePath(String filePath) {
+        this.fileId = symbols.getFiles().intern(filePath);
+    }
+
+    /**
+     * Returns the offset of the first character of the method in its file, or null when no reference was stored.
+     */
+    public Integer getStartOffset() {
+        return (startOffset < 0) ? null : startOffset;
+    }
+
+    public void setStartOffset(Integer startOffset) {
+        this.startOffset = (startOffset == null) ? -1 : startOffset;
+    }
+
+    /**
+     * Returns the offset following the last character of the method in its file, or null when no reference was
+     * stored.
+     */
+    public Integer getEndOffset() {
+        return (endOffset < 0) ? null : endOffset;
+    }
+
+    public void setEndOffset(Integer endOffset) {
+        this.endOffset = (endOffset == null) ? -1 : endOffset;
+    }
+
+    private String fullName(int qualifierId, int signatureId) {
+        if (signatureId < 0)
+            return null;
+        if (qualifierId < 0)
+            return symbols.getSignatures().get(signatureId);
+        return symbols.getTypes().get(qualifierId) + "::" + symbols.getSignatures().get(signatureId);
     }
 }
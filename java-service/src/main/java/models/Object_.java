@@ -1,6 +1,12 @@
 package models;
 
+/**
+ * A class, interface or annotation. Its qualified name and microservice name are shared through the
+ * {@link SymbolTable} it was created with, if any.
+ */
 public class Object_ {
+    private transient SymbolTable symbols;
+    private transient int id = -1;
     private boolean isInterface;
     private boolean isAnnotation;
     private String simpleName;
@@ -10,6 +16,19 @@ public class Object_ {
 
 
     private String content;
+    private String contentHash;
+    private Integer startOffset;
+    private Integer endOffset;
+
+    public Object_() {
+    }
+
+    /**
+     * Creates a type whose names are shared through the given symbol table, usually the one of the run.
+     */
+    public Object_(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
 
     public String getContent() {
         return content;
@@ -19,6 +38,41 @@ public class Object_ {
         this.content = content;
     }
 
+    /**
+     * Returns the hash of the content in the deduplicated content table, or null when the content is stored
+     * inline.
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Returns the offset of the first character of the type in its file, or null when no reference was stored.
+     */
+    public Integer getStartOffset() {
+        return startOffset;
+    }
+
+    public void setStartOffset(Integer startOffset) {
+        this.startOffset = startOffset;
+    }
+
+    /**
+     * Returns the offset following the last character of the type in its file, or null when no reference was
+     * stored.
+     */
+    public Integer getEndOffset() {
+        return endOffset;
+    }
+
+    public void setEndOffset(Integer endOffset) {
+        this.endOffset = endOffset;
+    }
+
     public String getSimpleName() {
         return simpleName;
     }
@@ -32,7 +86,17 @@ public class Object_ {
     }
 
     public void setFullName(String fullName) {
-        this.fullName = fullName;
+        id = (symbols == null) ? -1 : symbols.getTypes().intern(fullName);
+        this.fullName = (symbols == null) ? fullName : symbols.getTypes().get(id);
+    }
+
+    /**
+     * Returns the id of the type in the types of its symbol table, by which its methods refer to it, assigned when
+     * its full name is set. It is -1 when the type was created without a symbol table or its name was not set
+     * through {@link #setFullName} (e.g. when it was read by Gson).
+     */
+    public int getId() {
+        return id;
     }
 
     public String getFilePath() {
@@ -48,7 +112,7 @@ public class Object_ {
     }
 
     public void setServiceName(String serviceName) {
-        this.serviceName = serviceName;
+        this.serviceName = (symbols == null) ? serviceName : symbols.getServices().canonical(serviceName);
     }
 
     public boolean isInterface() {
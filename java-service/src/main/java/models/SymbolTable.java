@@ -0,0 +1,91 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the strings that are repeated across the extracted entities (microservice names, type names, method
+ * signatures, simple names and file paths) and gives each one an integer id, in one table per kind of symbol. A
+ * symbol table is shared by the entities of one run, which keep a reference to it: it only grows while they are
+ * in use and is released with them, so a long-lived process (the server or a batch) does not keep the symbols of
+ * the runs it has finished.
+ */
+public final class SymbolTable {
+    private final Symbols services = new Symbols();
+    private final Symbols types = new Symbols();
+    private final Symbols signatures = new Symbols();
+    private final Symbols names = new Symbols();
+    private final Symbols files = new Symbols();
+
+    public Symbols getServices() {
+        return services;
+    }
+
+    public Symbols getTypes() {
+        return types;
+    }
+
+    public Symbols getSignatures() {
+        return signatures;
+    }
+
+    public Symbols getNames() {
+        return names;
+    }
+
+    public Symbols getFiles() {
+        return files;
+    }
+
+    /**
+     * The symbols of one kind and their ids.
+     */
+    public static final class Symbols {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] symbols = new String[8];
+        private int size = 0;
+
+        private Symbols() {
+        }
+
+        /**
+         * Returns the id of the symbol, adding it to the table if needed, or -1 for null.
+         */
+        public int intern(String symbol) {
+            if (symbol == null)
+                return -1;
+            Integer id = ids.get(symbol);
+            if (id != null)
+                return id;
+            synchronized (this){
+                id = ids.get(symbol);
+                if (id != null)
+                    return id;
+                if (size == symbols.length)
+                    symbols = Arrays.copyOf(symbols, size * 2);
+                symbols[size] = symbol;
+                ids.put(symbol, size);
+                return size++;
+            }
+        }
+
+        /**
+         * Returns the symbol of the id, or null for -1.
+         */
+        public String get(int id) {
+            return (id < 0) ? null : symbols[id];
+        }
+
+        /**
+         * Returns the shared instance of the symbol.
+         */
+        public String canonical(String symbol) {
+            return get(intern(symbol));
+        }
+
+        public int size() {
+            return ids.size();
+        }
+    }
+}
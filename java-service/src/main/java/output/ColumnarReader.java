@@ -0,0 +1,251 @@
+package output;
+
+import models.Executable_;
+import models.Object_;
+import models.SymbolTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the files written by {@link ColumnarWriter}. Only the requested columns are read from the disk, so the
+ * names and relationships can be loaded without the contents.
+ */
+public class ColumnarReader implements Closeable {
+    private final FileChannel channel;
+    private final Map<String, ColumnInfo> columns = new LinkedHashMap<>();
+    private final long rowCount;
+    private final SymbolTable symbolTable = new SymbolTable();
+
+    private static class ColumnInfo {
+        private final byte kind;
+        private final long offset;
+        private final long length;
+
+        private ColumnInfo(byte kind, long offset, long length) {
+            this.kind = kind;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    public ColumnarReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        int magicLength = ColumnarWriter.MAGIC.length;
+        long size = channel.size();
+        ByteBuffer tail = read(size - magicLength - 4, magicLength + 4);
+        int footerLength = tail.getInt();
+        byte[] magic = new byte[magicLength];
+        tail.get(magic);
+        if (!Arrays.equals(magic, ColumnarWriter.MAGIC)){
+            channel.close();
+            throw new IOException("Not a columnar data file: " + path);
+        }
+        DataInputStream footer = stream(size - magicLength - 4 - footerLength, footerLength);
+        int columnCount = footer.readInt();
+        for (int i = 0; i < columnCount; i++){
+            String name = footer.readUTF();
+            byte kind = footer.readByte();
+            columns.put(name, new ColumnInfo(kind, footer.readLong(), footer.readLong()));
+        }
+        rowCount = footer.readLong();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public Set<String> getColumnNames() {
+        return columns.keySet();
+    }
+
+    public boolean[] readBooleans(String name) throws IOException {
+        DataInputStream data = open(name, ColumnarWriter.BOOLEAN);
+        boolean[] values = new boolean[(int) rowCount];
+        for (int i = 0; i < rowCount; i++){
+            values[i] = data.readBoolean();
+        }
+        return values;
+    }
+
+    /**
+     * Reads an integer column, where -1 stands for a missing value.
+     */
+    public int[] readInts(String name) throws IOException {
+        DataInputStream data = open(name, ColumnarWriter.INT);
+        int[] values = new int[(int) rowCount];
+        for (int i = 0; i < rowCount; i++){
+            values[i] = data.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Reads a string or dictionary-encoded column. The values of a dictionary column share the same instances.
+     */
+    public List<String> readStrings(String name) throws IOException {
+        ColumnInfo column = columns.get(name);
+        List<String> values = new ArrayList<>((int) rowCount);
+        if ((column != null)&&(column.kind == ColumnarWriter.DICTIONARY)){
+            DataInputStream data = open(name, ColumnarWriter.DICTIONARY);
+            int size = data.readInt();
+            String[] dictionary = new String[size];
+            for (int i = 0; i < size; i++){
+                dictionary[i] = readString(data);
+            }
+            for (int i = 0; i < rowCount; i++){
+                int code = data.readInt();
+                values.add((code < 0) ? null : dictionary[code]);
+            }
+            return values;
+        }
+        DataInputStream data = open(name, ColumnarWriter.STRING);
+        for (int i = 0; i < rowCount; i++){
+            values.add(readString(data));
+        }
+        return values;
+    }
+
+    /**
+     * Reads the content of each row from the blobs.
+     */
+    public List<String> readContents(String name) throws IOException {
+        DataInputStream data = open(name, ColumnarWriter.BLOB);
+        List<String> values = new ArrayList<>((int) rowCount);
+        for (int i = 0; i < rowCount; i++){
+            long offset = data.readLong();
+            int length = data.readInt();
+            if (length < 0){
+                values.add(null);
+                continue;
+            }
+            ByteBuffer buffer = read(offset, length);
+            values.add(new String(buffer.array(), 0, length, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    /**
+     * Reads the types, with or without their contents.
+     */
+    public List<Object_> readObjects(boolean withContent) throws IOException {
+        boolean[] interfaces = readBooleans("isInterface");
+        boolean[] annotations = readBooleans("isAnnotation");
+        List<String> simpleNames = readStrings("simpleName");
+        List<String> fullNames = readStrings("fullName");
+        List<String> filePaths = readStrings("filePath");
+        List<String> serviceNames = readStrings("serviceName");
+        List<String> contents = withContent ? readContents("content") : null;
+        int[] startOffsets = columns.containsKey("startOffset") ? readInts("startOffset") : null;
+        int[] endOffsets = columns.containsKey("endOffset") ? readInts("endOffset") : null;
+        List<String> contentHashes = columns.containsKey("contentHash") ? readStrings("contentHash") : null;
+        List<Object_> objects = new ArrayList<>((int) rowCount);
+        for (int i = 0; i < rowCount; i++){
+            Object_ object_ = new Object_(symbolTable);
+            object_.setInterface(interfaces[i]);
+            object_.setAnnotation(annotations[i]);
+            object_.setSimpleName(simpleNames.get(i));
+            object_.setFullName(fullNames.get(i));
+            object_.setFilePath(filePaths.get(i));
+            object_.setServiceName(serviceNames.get(i));
+            if (contents != null)
+                object_.setContent(contents.get(i));
+            if ((startOffsets != null)&&(endOffsets != null)&&(startOffsets[i] >= 0)){
+                object_.setStartOffset(startOffsets[i]);
+                object_.setEndOffset(endOffsets[i]);
+            }
+            if (contentHashes != null)
+                object_.setContentHash(contentHashes.get(i));
+            objects.add(object_);
+        }
+        return objects;
+    }
+
+    /**
+     * Reads the methods, with or without their contents.
+     */
+    public List<Executable_> readMethods(boolean withContent) throws IOException {
+        List<String> fullNames = readStrings("fullName");
+        List<String> simpleNames = readStrings("simpleName");
+        List<String> parentNames = readStrings("parentName");
+        List<String> serviceNames = readStrings("serviceName");
+        List<String> inheritedFrom = readStrings("inheritedFrom");
+        List<String> contents = withContent ? readContents("content") : null;
+        List<String> filePaths = columns.containsKey("filePath") ? readStrings("filePath") : null;
+        int[] startOffsets = columns.containsKey("startOffset") ? readInts("startOffset") : null;
+        int[] endOffsets = columns.containsKey("endOffset") ? readInts("endOffset") : null;
+        List<String> contentHashes = columns.containsKey("contentHash") ? readStrings("contentHash") : null;
+        List<Executable_> methods = new ArrayList<>((int) rowCount);
+        for (int i = 0; i < rowCount; i++){
+            Executable_ method_ = new Executable_(symbolTable);
+            method_.setFullName(fullNames.get(i));
+            method_.setSimpleName(simpleNames.get(i));
+            method_.setParentName(parentNames.get(i));
+            method_.setServiceName(serviceNames.get(i));
+            method_.setInheritedFrom(inheritedFrom.get(i));
+            if (contents != null)
+                method_.setContent(contents.get(i));
+            if (filePaths != null)
+                method_.setFilePath(filePaths.get(i));
+            if ((startOffsets != null)&&(endOffsets != null)&&(startOffsets[i] >= 0)){
+                method_.setStartOffset(startOffsets[i]);
+                method_.setEndOffset(endOffsets[i]);
+            }
+            if (contentHashes != null)
+                method_.setContentHash(contentHashes.get(i));
+            methods.add(method_);
+        }
+        return methods;
+    }
+
+    private DataInputStream open(String name, byte kind) throws IOException {
+        ColumnInfo column = columns.get(name);
+        if (column == null)
+            throw new IOException("Unknown column \"" + name + "\"");
+        if (column.kind != kind)
+            throw new IOException("Column \"" + name + "\" has kind " + column.kind + " instead of " + kind);
+        return stream(column.offset, column.length);
+    }
+
+    private DataInputStream stream(long offset, long length) throws IOException {
+        ByteBuffer buffer = read(offset, (int) length);
+        return new DataInputStream(new ByteArrayInputStream(buffer.array(), 0, (int) length));
+    }
+
+    private ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()){
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+                throw new IOException("Unexpected end of file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,277 @@
+package output;
+
+import models.Executable_;
+import models.Object_;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the types and methods to compact binary columnar files ("typeData.bin" and "methodData.bin"). Each
+ * file is laid out as follows:
+ * <pre>
+ *     magic | content blobs | column 1 | ... | column n | footer | footer length (int) | magic
+ * </pre>
+ * The contents are streamed to the file as soon as the entities are received, while the other columns are
+ * kept in memory and written at the end. The footer lists, for each column, its name, kind, offset and length,
+ * followed by the number of rows. Repetitive columns (service, parent and file names) are dictionary-encoded,
+ * and the content column only stores (offset, length) pairs into the blobs, so the names and relationships can
+ * be loaded with {@link ColumnarReader} without reading the source code. When the contents are stored as
+ * references, the files also have "startOffset" and "endOffset" integer columns (and a "filePath" column for
+ * the methods). When the contents are deduplicated, a "contentHash" dictionary column references the content
+ * table.
+ */
+public class ColumnarWriter implements ResultWriter {
+    static final byte[] MAGIC = "MACOL1".getBytes(StandardCharsets.US_ASCII);
+    static final byte BOOLEAN = 0;
+    static final byte STRING = 1;
+    static final byte DICTIONARY = 2;
+    static final byte BLOB = 3;
+    static final byte INT = 4;
+
+    private final TableWriter types;
+    private final TableWriter methods;
+    private final boolean sourceRanges;
+    private final boolean contentHashes;
+
+    public ColumnarWriter(Path typePath, Path methodPath) throws IOException {
+        this(typePath, methodPath, false);
+    }
+
+    public ColumnarWriter(Path typePath, Path methodPath, boolean sourceRanges) throws IOException {
+        this(typePath, methodPath, sourceRanges, false);
+    }
+
+    /**
+     * Creates a writer that also stores the source ranges and the content hashes of the types and methods when
+     * requested.
+     */
+    public ColumnarWriter(Path typePath, Path methodPath, boolean sourceRanges, boolean contentHashes)
+            throws IOException {
+        this.sourceRanges = sourceRanges;
+        this.contentHashes = contentHashes;
+        types = new TableWriter(typePath);
+        types.addColumn("isInterface", BOOLEAN);
+        types.addColumn("isAnnotation", BOOLEAN);
+        types.addColumn("simpleName", STRING);
+        types.addColumn("fullName", STRING);
+        types.addColumn("filePath", DICTIONARY);
+        types.addColumn("serviceName", DICTIONARY);
+        types.addColumn("content", BLOB);
+        methods = new TableWriter(methodPath);
+        methods.addColumn("fullName", STRING);
+        methods.addColumn("simpleName", STRING);
+        methods.addColumn("parentName", DICTIONARY);
+        methods.addColumn("serviceName", DICTIONARY);
+        methods.addColumn("inheritedFrom", STRING);
+        methods.addColumn("content", BLOB);
+        if (sourceRanges){
+            types.addColumn("startOffset", INT);
+            types.addColumn("endOffset", INT);
+            methods.addColumn("filePath", DICTIONARY);
+            methods.addColumn("startOffset", INT);
+            methods.addColumn("endOffset", INT);
+        }
+        if (contentHashes){
+            types.addColumn("contentHash", DICTIONARY);
+            methods.addColumn("contentHash", DICTIONARY);
+        }
+    }
+
+    @Override
+    public synchronized long getObjectCount() {
+        return types.rows;
+    }
+
+    @Override
+    public synchronized long getMethodCount() {
+        return methods.rows;
+    }
+
+    @Override
+    public synchronized void addObject(Object_ object_) {
+        List<Object> row = new ArrayList<>(Arrays.asList(object_.isInterface(), object_.isAnnotation(),
+                object_.getSimpleName(), object_.getFullName(), object_.getFilePath(), object_.getServiceName(),
+                object_.getContent()));
+        if (sourceRanges)
+            row.addAll(Arrays.asList(object_.getStartOffset(), object_.getEndOffset()));
+        if (contentHashes)
+            row.add(object_.getContentHash());
+        types.addRow(row.toArray());
+    }
+
+    @Override
+    public synchronized void addMethod(Executable_ method_) {
+        List<Object> row = new ArrayList<>(Arrays.asList(method_.getFullName(), method_.getSimpleName(),
+                method_.getParentName(), method_.getServiceName(), method_.getInheritedFrom(), method_.getContent()));
+        if (sourceRanges)
+            row.addAll(Arrays.asList(method_.getFilePath(), method_.getStartOffset(), method_.getEndOffset()));
+        if (contentHashes)
+            row.add(method_.getContentHash());
+        methods.addRow(row.toArray());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        types.close();
+        methods.close();
+    }
+
+    private static class Column {
+        private final String name;
+        private final byte kind;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(bytes);
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> dictionaryValues = new ArrayList<>();
+
+        private Column(String name, byte kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+    }
+
+    private static class TableWriter {
+        private final CountingOutputStream counter;
+        private final DataOutputStream out;
+        private final List<Column> columns = new ArrayList<>();
+        private long rows = 0;
+
+        private TableWriter(Path path) throws IOException {
+            if (path.getParent() != null)
+                Files.createDirectories(path.getParent());
+            counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+            out = new DataOutputStream(counter);
+            out.write(MAGIC);
+        }
+
+        private void addColumn(String name, byte kind) {
+            columns.add(new Column(name, kind));
+        }
+
+        private void addRow(Object... values) {
+            try {
+                for (int i = 0; i < values.length; i++){
+                    write(columns.get(i), values[i]);
+                }
+            }
+            catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+        }
+
+        private void write(Column column, Object value) throws IOException {
+            switch (column.kind){
+                case BOOLEAN:
+                    column.data.writeBoolean((Boolean) value);
+                    break;
+                case STRING:
+                    writeString(column.data, (String) value);
+                    break;
+                case DICTIONARY:
+                    if (value == null){
+                        column.data.writeInt(-1);
+                        break;
+                    }
+                    Integer code = column.dictionary.get(value);
+                    if (code == null){
+                        code = column.dictionaryValues.size();
+                        column.dictionary.put((String) value, code);
+                        column.dictionaryValues.add((String) value);
+                    }
+                    column.data.writeInt(code);
+                    break;
+                case BLOB:
+                    if (value == null){
+                        column.data.writeLong(-1);
+                        column.data.writeInt(-1);
+                        break;
+                    }
+                    byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                    column.data.writeLong(counter.count);
+                    column.data.writeInt(bytes.length);
+                    out.write(bytes);
+                    break;
+                case INT:
+                    column.data.writeInt((value == null) ? -1 : (Integer) value);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown column kind " + column.kind);
+            }
+        }
+
+        private void close() throws IOException {
+            long[] offsets = new long[columns.size()];
+            long[] lengths = new long[columns.size()];
+            for (int i = 0; i < columns.size(); i++){
+                Column column = columns.get(i);
+                offsets[i] = counter.count;
+                if (column.kind == DICTIONARY){
+                    out.writeInt(column.dictionaryValues.size());
+                    for (String value: column.dictionaryValues){
+                        writeString(out, value);
+                    }
+                }
+                column.data.flush();
+                column.bytes.writeTo(out);
+                lengths[i] = counter.count - offsets[i];
+            }
+            long footerStart = counter.count;
+            out.writeInt(columns.size());
+            for (int i = 0; i < columns.size(); i++){
+                out.writeUTF(columns.get(i).name);
+                out.writeByte(columns.get(i).kind);
+                out.writeLong(offsets[i]);
+                out.writeLong(lengths[i]);
+            }
+            out.writeLong(rows);
+            out.writeInt((int) (counter.count - footerStart));
+            out.write(MAGIC);
+            out.close();
+        }
+
+        private static void writeString(DataOutputStream data, String value) throws IOException {
+            if (value == null){
+                data.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package output;
+
+import com.google.gson.stream.JsonWriter;
+import models.Executable_;
+import models.Object_;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deduplicates the contents of the types and methods before handing them to another writer. Each record gets
+ * the hash of its content instead of the content, and each distinct content is written once, as it is, to
+ * "contentTable.json" as {"hash": ..., "content": ...}. The hash is computed on the content as it is, so the
+ * contents differing only in comments or whitespace are stored separately. When the writer is closed, the contents
+ * that are equal once normalized (see {@link MinHash}) or whose estimated similarity reaches the threshold are
+ * grouped with MinHash locality-sensitive hashing and the groups referenced by at least two records are saved in
+ * "duplicateClusters.json". With compression, the content table is gzip-compressed ("contentTable.json.gz"). The
+ * records are only changed while they are written, so cached records can be written again.
+ * <p>
+ * Only the hashes and a few integers per distinct content are kept in memory during the run: the signatures and
+ * the records referencing each content are spilled to temporary files of the output directory, which are read
+ * back when the groups are written and deleted afterwards.
+ */
+public class DeduplicatingWriter implements ResultWriter {
+    public static final String CONTENT_TABLE = "contentTable.json";
+    public static final String CLUSTERS_FILE = "duplicateClusters.json";
+    static final int BANDS = 16;
+    static final int ROWS = MinHash.SIGNATURE_SIZE / BANDS;
+    private static final int HASH_SIZE = 32;
+    private static final int SIGNATURE_RECORD = HASH_SIZE + 8 * MinHash.SIGNATURE_SIZE;
+
+    private final ResultWriter writer;
+    private final Path outputDir;
+    private final double threshold;
+    private final Writer contentOut;
+    private final JsonWriter contentWriter;
+    private final Path signaturePath;
+    private final Path memberPath;
+    private final DataOutputStream signatureOut;
+    private final DataOutputStream memberOut;
+    private final ByteArrayOutputStream memberBuffer = new ByteArrayOutputStream();
+    private final Map<String, Integer> contentIds = new HashMap<>();
+    private final Map<String, Integer> normalizedIds = new HashMap<>();
+    private final BitSet signed = new BitSet();
+    private int[] normalizedFirsts = new int[64];
+    private int[] bandKeys = new int[64 * BANDS];
+    private int[] memberCounts = new int[64];
+    private long[] memberBytes = new long[64];
+    private int contents = 0;
+    private long records = 0;
+
+    public DeduplicatingWriter(ResultWriter writer, Path outputDir, double threshold, boolean compress)
+            throws IOException {
+        this.writer = writer;
+        this.outputDir = outputDir;
+        this.threshold = threshold;
+        contentOut = JsonStreamWriter.open(outputDir.resolve(CONTENT_TABLE + (compress ? ".gz" : "")));
+        contentWriter = JsonStreamWriter.begin(contentOut);
+        signaturePath = Files.createTempFile(outputDir, "signatures", ".tmp");
+        memberPath = Files.createTempFile(outputDir, "members", ".tmp");
+        signatureOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(signaturePath), 1 << 16));
+        memberOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(memberPath), 1 << 16));
+    }
+
+    /**
+     * Returns the number of distinct contents.
+     */
+    public synchronized int getContentCount() {
+        return contents;
+    }
+
+    @Override
+    public long getObjectCount() {
+        return writer.getObjectCount();
+    }
+
+    @Override
+    public long getMethodCount() {
+        return writer.getMethodCount();
+    }
+
+    @Override
+    public synchronized void addObject(Object_ object_) {
+        String content = object_.getContent();
+        if (content == null){
+            writer.addObject(object_);
+            return;
+        }
+        object_.setContentHash(register(content, "type", object_.getServiceName(), object_.getFullName()));
+        object_.setContent(null);
+        try {
+            writer.addObject(object_);
+        }
+        finally {
+            object_.setContent(content);
+            object_.setContentHash(null);
+        }
+    }
+
+    @Override
+    public synchronized void addMethod(Executable_ method_) {
+        String content = method_.getContent();
+        if (content == null){
+            writer.addMethod(method_);
+            return;
+        }
+        method_.setContentHash(register(content, "method", method_.getServiceName(), method_.getFullName()));
+        method_.setContent(null);
+        try {
+            writer.addMethod(method_);
+        }
+        finally {
+            method_.setContent(content);
+            method_.setContentHash(null);
+        }
+    }
+
+    /**
+     * Returns the hash of a content, writing it to the content table and its signature to the signature file the
+     * first time it is seen, and spills the record referencing it. The contents that are only equal once
+     * normalized are grouped with the first of them and have no signature of their own.
+     */
+    private String register(String content, String kind, String serviceName, String fullName) {
+        String hash = MinHash.hash(content);
+        try {
+            Integer id = contentIds.get(hash);
+            if (id == null){
+                id = contents++;
+                grow();
+                String normalized = MinHash.normalize(content);
+                Integer first = normalizedIds.putIfAbsent(MinHash.hash(normalized), id);
+                contentIds.put(hash, id);
+                normalizedFirsts[id] = (first == null) ? id : first;
+                long[] signature = (first == null) ? MinHash.signature(normalized) : null;
+                writeSignature(hash, signature);
+                if (signature != null){
+                    signed.set(id);
+                    for (int band = 0; band < BANDS; band++){
+                        bandKeys[id * BANDS + band] =
+                                Arrays.hashCode(Arrays.copyOfRange(signature, band * ROWS, (band + 1) * ROWS));
+                    }
+                }
+                contentWriter.beginObject();
+                contentWriter.name("hash").value(hash);
+                contentWriter.name("content").value(content);
+                contentWriter.endObject();
+            }
+            memberBuffer.reset();
+            DataOutputStream member = new DataOutputStream(memberBuffer);
+            writeString(member, kind);
+            writeString(member, serviceName);
+            writeString(member, fullName);
+            memberOut.writeInt(id);
+            memberOut.writeInt(memberBuffer.size());
+            memberBuffer.writeTo(memberOut);
+            memberCounts[id]++;
+            memberBytes[id] += 8 + memberBuffer.size();
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        records++;
+        return hash;
+    }
+
+    private void grow() {
+        if (contents <= normalizedFirsts.length)
+            return;
+        int capacity = normalizedFirsts.length * 2;
+        normalizedFirsts = Arrays.copyOf(normalizedFirsts, capacity);
+        bandKeys = Arrays.copyOf(bandKeys, capacity * BANDS);
+        memberCounts = Arrays.copyOf(memberCounts, capacity);
+        memberBytes = Arrays.copyOf(memberBytes, capacity);
+    }
+
+    /**
+     * Appends the fixed-size record of a content to the signature file: its hash, then its signature (zeros when it
+     * has none).
+     */
+    private void writeSignature(String hash, long[] signature) throws IOException {
+        signatureOut.write(hash.getBytes(StandardCharsets.US_ASCII));
+        for (int i = 0; i < MinHash.SIGNATURE_SIZE; i++){
+            signatureOut.writeLong((signature == null) ? 0 : signature[i]);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            try {
+                JsonStreamWriter.finish(contentWriter, contentOut);
+            }
+            finally {
+                try {
+                    signatureOut.close();
+                    memberOut.close();
+                }
+                finally {
+                    writer.close();
+                }
+            }
+            writeClusters();
+        }
+        finally {
+            Files.deleteIfExists(signaturePath);
+            Files.deleteIfExists(memberPath);
+        }
+    }
+
+    /**
+     * Saves the groups referenced by at least two records, largest first, with the hashes of their contents and
+     * their records. The spilled records are first copied to another temporary file in the order of the groups,
+     * so that each group can then be written while the file is read once.
+     */
+    private void writeClusters() throws IOException {
+        Path sortedPath = Files.createTempFile(outputDir, "clusters", ".tmp");
+        try (FileChannel signatures = FileChannel.open(signaturePath, StandardOpenOption.READ);
+             Writer out = JsonStreamWriter.open(outputDir.resolve(CLUSTERS_FILE))) {
+            int[] roots = cluster(signatures);
+            int[] sizes = new int[contents];
+            for (int id = 0; id < contents; id++){
+                sizes[roots[id]] += memberCounts[id];
+            }
+            List<Integer> clusters = new ArrayList<>();
+            for (int id = 0; id < contents; id++){
+                if ((roots[id] == id)&&(sizes[id] >= 2))
+                    clusters.add(id);
+            }
+            clusters.sort(Comparator.comparingInt((Integer root) -> sizes[root]).reversed());
+            int[] ranks = new int[contents];
+            Arrays.fill(ranks, -1);
+            for (int rank = 0; rank < clusters.size(); rank++){
+                ranks[clusters.get(rank)] = rank;
+            }
+            int[][] members = new int[clusters.size()][];
+            int[] filled = new int[clusters.size()];
+            for (int rank = 0; rank < clusters.size(); rank++){
+                members[rank] = new int[0];
+            }
+            for (int id = 0; id < contents; id++){
+                int rank = ranks[roots[id]];
+                if (rank < 0)
+                    continue;
+                if (filled[rank] == members[rank].length)
+                    members[rank] = Arrays.copyOf(members[rank], Math.max(4, filled[rank] * 2));
+                members[rank][filled[rank]++] = id;
+            }
+            long[] offsets = new long[contents];
+            Arrays.fill(offsets, -1);
+            long offset = 0;
+            for (int rank = 0; rank < clusters.size(); rank++){
+                members[rank] = Arrays.copyOf(members[rank], filled[rank]);
+                for (int id: members[rank]){
+                    offsets[id] = offset;
+                    offset += memberBytes[id];
+                }
+            }
+            sortMembers(offsets, sortedPath);
+
+            JsonWriter json = new JsonWriter(out);
+            json.setIndent("  ");
+            json.beginObject();
+            json.name("threshold").value(threshold);
+            json.name("records").value(records);
+            json.name("contents").value(contents);
+            json.name("clusters").beginArray();
+            try (DataInputStream sorted = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(sortedPath), 1 << 16))) {
+                for (int rank = 0; rank < clusters.size(); rank++){
+                    json.beginObject();
+                    json.name("hashes").beginArray();
+                    for (int id: members[rank]){
+                        json.value(readHash(signatures, id));
+                    }
+                    json.endArray();
+                    json.name("members").beginArray();
+                    for (int i = 0; i < sizes[clusters.get(rank)]; i++){
+                        int id = sorted.readInt();
+                        sorted.readInt();
+                        json.beginObject();
+                        writeMember(json, "kind", readString(sorted));
+                        writeMember(json, "serviceName", readString(sorted));
+                        writeMember(json, "fullName", readString(sorted));
+                        json.name("hash").value(readHash(signatures, id));
+                        json.endObject();
+                    }
+                    json.endArray();
+                    json.endObject();
+                }
+            }
+            json.endArray();
+            json.endObject();
+            json.flush();
+        }
+        finally {
+            Files.deleteIfExists(sortedPath);
+        }
+    }
+
+    private static void writeMember(JsonWriter json, String name, String value) throws IOException {
+        if (value != null)
+            json.name(name).value(value);
+    }
+
+    /**
+     * Copies the spilled records of the grouped contents to the given offsets, keeping their order within each
+     * content, and drops the others.
+     */
+    private void sortMembers(long[] offsets, Path sortedPath) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(memberPath), 1 << 16));
+             FileChannel sorted = FileChannel.open(sortedPath, StandardOpenOption.WRITE)) {
+            for (long i = 0; i < records; i++){
+                int id = in.readInt();
+                int length = in.readInt();
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                if (offsets[id] < 0)
+                    continue;
+                ByteBuffer record = ByteBuffer.allocate(8 + length);
+                record.putInt(id).putInt(length).put(bytes).flip();
+                while (record.hasRemaining()){
+                    offsets[id] += sorted.write(record, offsets[id]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Groups the contents that are equal once normalized, then the contents whose signatures share a band and
+     * whose estimated similarity to the first content of the bucket reaches the threshold, and returns the first
+     * content of the group of each content.
+     */
+    private int[] cluster(FileChannel signatures) throws IOException {
+        int[] parents = Arrays.copyOf(normalizedFirsts, contents);
+        for (int band = 0; band < BANDS; band++){
+            Map<Integer, List<Integer>> buckets = new HashMap<>();
+            for (int id = signed.nextSetBit(0); id >= 0; id = signed.nextSetBit(id + 1)){
+                buckets.computeIfAbsent(bandKeys[id * BANDS + band], k -> new ArrayList<>()).add(id);
+            }
+            for (List<Integer> bucket: buckets.values()){
+                if (bucket.size() < 2)
+                    continue;
+                long[] representative = readSignature(signatures, bucket.get(0));
+                for (int i = 1; i < bucket.size(); i++){
+                    int first = find(parents, bucket.get(0));
+                    int second = find(parents, bucket.get(i));
+                    if ((first != second)&&
+                            (MinHash.similarity(representative, readSignature(signatures, bucket.get(i))) >= threshold))
+                        parents[Math.max(first, second)] = Math.min(first, second);
+                }
+            }
+        }
+        for (int id = 0; id < contents; id++){
+            parents[id] = find(parents, id);
+        }
+        return parents;
+    }
+
+    private static int find(int[] parents, int id) {
+        while (parents[id] != id){
+            parents[id] = parents[parents[id]];
+            id = parents[id];
+        }
+        return id;
+    }
+
+    private static String readHash(FileChannel signatures, int id) throws IOException {
+        ByteBuffer buffer = read(signatures, (long) id * SIGNATURE_RECORD, HASH_SIZE);
+        return new String(buffer.array(), StandardCharsets.US_ASCII);
+    }
+
+    private static long[] readSignature(FileChannel signatures, int id) throws IOException {
+        ByteBuffer buffer = read(signatures, (long) id * SIGNATURE_RECORD + HASH_SIZE, 8 * MinHash.SIGNATURE_SIZE);
+        long[] signature = new long[MinHash.SIGNATURE_SIZE];
+        buffer.asLongBuffer().get(signature);
+        return signature;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()){
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Truncated file " + channel);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null){
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
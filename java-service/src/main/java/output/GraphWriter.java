@@ -0,0 +1,112 @@
+package output;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import processors.DependencyGraph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Saves a {@link DependencyGraph} restricted to the nodes declared in the analyzed code, with dense ids:
+ * <ul>
+ *     <li>"dependencyNodes.json" lists the names of the microservices ("services") and the names of the types,
+ *     methods and fields ("types", "methods" and "fields"), the index of a name being its id, with the index in
+ *     "services" of the microservice of each node ("typeServices", "methodServices" and "fieldServices", -1 for
+ *     a node without a microservice). A type declared by two microservices is two nodes.</li>
+ *     <li>"dependencyGraph.csr" stores each relation as a CSR adjacency matrix (big-endian): the magic
+ *     "MACSR1", the number of relations, then for each relation its name, source kind and target kind (as
+ *     modified UTF-8 strings), the number of source nodes n, the number of edges m, the n + 1 row offsets and
+ *     the m target ids sorted by source then target</li>
+ * </ul>
+ */
+public class GraphWriter {
+    static final byte[] MAGIC = "MACSR1".getBytes(StandardCharsets.US_ASCII);
+
+    public static void write(DependencyGraph graph, Path nodesPath, Path graphPath) throws IOException {
+        Map<DependencyGraph.NodeKind, int[]> ids = new EnumMap<>(DependencyGraph.NodeKind.class);
+        JsonObject nodes = new JsonObject();
+        JsonArray services = new JsonArray();
+        Map<String, Integer> serviceIds = new HashMap<>();
+        nodes.add("services", services);
+        for (DependencyGraph.NodeKind kind: DependencyGraph.NodeKind.values()){
+            int[] mapping = new int[graph.getNodeCount(kind)];
+            JsonArray names = new JsonArray();
+            JsonArray nodeServices = new JsonArray();
+            for (int i = 0; i < mapping.length; i++){
+                if (graph.isDeclared(kind, i)){
+                    mapping[i] = names.size();
+                    names.add(graph.getName(kind, i));
+                    String service = graph.getService(kind, i);
+                    if (service == null)
+                        nodeServices.add(-1);
+                    else {
+                        nodeServices.add(serviceIds.computeIfAbsent(service, name -> {
+                            services.add(name);
+                            return services.size() - 1;
+                        }));
+                    }
+                }
+                else {
+                    mapping[i] = -1;
+                }
+            }
+            ids.put(kind, mapping);
+            nodes.add(kind + "s", names);
+            nodes.add(kind + "Services", nodeServices);
+        }
+        if (nodesPath.getParent() != null)
+            Files.createDirectories(nodesPath.getParent());
+        Gson gson = new GsonBuilder().create();
+        try (Writer writer = Files.newBufferedWriter(nodesPath, StandardCharsets.UTF_8)) {
+            gson.toJson(nodes, writer);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(graphPath)))) {
+            out.write(MAGIC);
+            out.writeInt(DependencyGraph.Relation.values().length);
+            for (DependencyGraph.Relation relation: DependencyGraph.Relation.values()){
+                int[] sourceIds = ids.get(relation.getSource());
+                int[] targetIds = ids.get(relation.getTarget());
+                int rows = nodes.getAsJsonArray(relation.getSource() + "s").size();
+                long[] pairs = new long[graph.getEdgeCount(relation)];
+                int count = 0;
+                for (int i = 0; i < pairs.length; i++){
+                    int source = sourceIds[graph.getEdgeSource(relation, i)];
+                    int target = targetIds[graph.getEdgeTarget(relation, i)];
+                    if ((source >= 0)&&(target >= 0))
+                        pairs[count++] = ((long) source << 32) | target;
+                }
+                Arrays.sort(pairs, 0, count);
+                int[] offsets = new int[rows + 1];
+                for (int i = 0; i < count; i++){
+                    offsets[(int) (pairs[i] >>> 32) + 1]++;
+                }
+                for (int i = 0; i < rows; i++){
+                    offsets[i + 1] += offsets[i];
+                }
+                out.writeUTF(relation.name());
+                out.writeUTF(relation.getSource().name());
+                out.writeUTF(relation.getTarget().name());
+                out.writeInt(rows);
+                out.writeInt(count);
+                for (int offset: offsets){
+                    out.writeInt(offset);
+                }
+                for (int i = 0; i < count; i++){
+                    out.writeInt((int) pairs[i]);
+                }
+            }
+        }
+    }
+}
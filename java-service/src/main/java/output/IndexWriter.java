@@ -0,0 +1,189 @@
+package output;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import models.DataIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves the "dataIndex.bin" lookup index of the uncompressed "typeData.json" and "methodData.json" of an output
+ * directory, read by {@link DataIndex} (which describes the format). The data files are scanned once to find the
+ * position of each record and the names it is looked up by.
+ */
+public class IndexWriter {
+    private final List<byte[]> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    /**
+     * The positions of the records of a data file and the names of each record, as temporary name ids.
+     */
+    private static class Records {
+        private final List<long[]> positions = new ArrayList<>();
+        private final List<int[]> keys = new ArrayList<>();
+    }
+
+    private IndexWriter() {
+    }
+
+    public static void write(Path outputDir) throws IOException {
+        new IndexWriter().writeIndex(outputDir);
+    }
+
+    private void writeIndex(Path outputDir) throws IOException {
+        Records types = scan(outputDir.resolve(DataIndex.TYPE_FILE), "fullName", "serviceName");
+        Records methods = scan(outputDir.resolve(DataIndex.METHOD_FILE), "fullName", "parentName");
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> compare(names.get(first), names.get(second)));
+        int[] sortedIds = new int[order.length];
+        for (int i = 0; i < order.length; i++){
+            sortedIds[order[i]] = i;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(outputDir.resolve(DataIndex.INDEX_FILE))))) {
+            out.write(DataIndex.MAGIC);
+            out.writeInt(order.length);
+            int offset = 0;
+            out.writeInt(offset);
+            for (Integer id: order){
+                offset += names.get(id).length;
+                out.writeInt(offset);
+            }
+            for (Integer id: order){
+                out.write(names.get(id));
+            }
+            writeRecords(out, types);
+            writeRecords(out, methods);
+            writeTable(out, types, 0, sortedIds);
+            writeTable(out, methods, 0, sortedIds);
+            writeTable(out, methods, 1, sortedIds);
+            writeTable(out, types, 1, sortedIds);
+        }
+    }
+
+    private static void writeRecords(DataOutputStream out, Records records) throws IOException {
+        out.writeInt(records.positions.size());
+        for (long[] position: records.positions){
+            out.writeLong(position[0]);
+        }
+        for (long[] position: records.positions){
+            out.writeInt((int) position[1]);
+        }
+    }
+
+    /**
+     * Writes the (name id, record) pairs of one of the names of the records, sorted by name then record.
+     */
+    private static void writeTable(DataOutputStream out, Records records, int key, int[] sortedIds)
+            throws IOException {
+        long[] pairs = new long[records.keys.size()];
+        int count = 0;
+        for (int record = 0; record < pairs.length; record++){
+            int id = records.keys.get(record)[key];
+            if (id >= 0)
+                pairs[count++] = ((long) sortedIds[id] << 32) | record;
+        }
+        Arrays.sort(pairs, 0, count);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++){
+            out.writeInt((int) (pairs[i] >>> 32));
+        }
+        for (int i = 0; i < count; i++){
+            out.writeInt((int) pairs[i]);
+        }
+    }
+
+    /**
+     * Finds the byte range of each object of the top-level array of a JSON file and reads the given names of the
+     * objects.
+     */
+    private Records scan(Path path, String... keys) throws IOException {
+        Records records = new Records();
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            long position = 0;
+            long start = -1;
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            int b;
+            while ((b = in.read()) >= 0){
+                if ((depth == 1)&&(!inString)&&(b == '{'))
+                    start = position;
+                if (start >= 0)
+                    record.write(b);
+                if (inString){
+                    if (escaped)
+                        escaped = false;
+                    else if (b == '\\')
+                        escaped = true;
+                    else if (b == '"')
+                        inString = false;
+                }
+                else if (b == '"'){
+                    inString = true;
+                }
+                else if ((b == '{')||(b == '[')){
+                    depth++;
+                }
+                else if ((b == '}')||(b == ']')){
+                    depth--;
+                    if ((depth == 1)&&(start >= 0)){
+                        records.positions.add(new long[]{start, position + 1 - start});
+                        records.keys.add(names(record.toString(StandardCharsets.UTF_8.name()), keys));
+                        record.reset();
+                        start = -1;
+                    }
+                }
+                position++;
+            }
+        }
+        return records;
+    }
+
+    private int[] names(String json, String... keys) {
+        JsonObject object = JsonParser.parseString(json).getAsJsonObject();
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < keys.length; i++){
+            JsonElement value = object.get(keys[i]);
+            ids[i] = ((value == null)||(value.isJsonNull())) ? -1 : nameId(value.getAsString());
+        }
+        return ids;
+    }
+
+    private int nameId(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null){
+            id = names.size();
+            nameIds.put(name, id);
+            names.add(name.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    private static int compare(byte[] first, byte[] second) {
+        for (int i = 0; (i < first.length)&&(i < second.length); i++){
+            int difference = (first[i] & 0xff) - (second[i] & 0xff);
+            if (difference != 0)
+                return difference;
+        }
+        return first.length - second.length;
+    }
+}
@@ -0,0 +1,194 @@
+package output;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import models.Executable_;
+import models.Object_;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the types and methods to "typeData.json" and "methodData.json" one entity at a time instead of
+ * building the whole documents in memory. The generated files are identical to the pretty-printed output of
+ * {@link Gson#toJson(Object)} on the complete lists. Files whose name ends with ".gz" are gzip-compressed.
+ * Write failures during extraction are reported as {@link com.google.gson.JsonIOException}.
+ */
+public class JsonStreamWriter implements ResultWriter {
+    private final Gson gson = new Gson();
+    private final Path typePath;
+    private final Path methodPath;
+    private final Writer typeOut;
+    private final Writer methodOut;
+    private final JsonWriter typeWriter;
+    private final JsonWriter methodWriter;
+    private long objectCount = 0;
+    private long methodCount = 0;
+
+    public JsonStreamWriter(Path typePath, Path methodPath) throws IOException {
+        this.typePath = typePath;
+        this.methodPath = methodPath;
+        typeOut = open(typePath);
+        methodOut = open(methodPath);
+        typeWriter = begin(typeOut);
+        methodWriter = begin(methodOut);
+    }
+
+    private JsonStreamWriter(Path typePath, Path methodPath, long objectCount, long methodCount) {
+        this.typePath = typePath;
+        this.methodPath = methodPath;
+        this.objectCount = objectCount;
+        this.methodCount = methodCount;
+        typeOut = null;
+        methodOut = null;
+        typeWriter = null;
+        methodWriter = null;
+    }
+
+    /**
+     * Returns a closed writer for existing files, e.g. to read or append them again after a restart.
+     */
+    public static JsonStreamWriter reopen(Path typePath, Path methodPath, long objectCount, long methodCount) {
+        return new JsonStreamWriter(typePath, methodPath, objectCount, methodCount);
+    }
+
+    static Writer open(Path path) throws IOException {
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        if (isCompressed(path))
+            return new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(path), 1 << 16), StandardCharsets.UTF_8));
+        return Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+    }
+
+    static Reader openReader(Path path) throws IOException {
+        if (isCompressed(path))
+            return new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(path), 1 << 16), StandardCharsets.UTF_8));
+        return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isCompressed(Path path) {
+        return path.getFileName().toString().endsWith(".gz");
+    }
+
+    static JsonWriter begin(Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setIndent("  ");
+        writer.beginArray();
+        return writer;
+    }
+
+    public Path getTypePath() {
+        return typePath;
+    }
+
+    public Path getMethodPath() {
+        return methodPath;
+    }
+
+    @Override
+    public synchronized long getObjectCount() {
+        return objectCount;
+    }
+
+    @Override
+    public synchronized long getMethodCount() {
+        return methodCount;
+    }
+
+    @Override
+    public synchronized void addObject(Object_ object_) {
+        gson.toJson(object_, Object_.class, typeWriter);
+        objectCount++;
+    }
+
+    @Override
+    public synchronized void addMethod(Executable_ method_) {
+        gson.toJson(method_, Executable_.class, methodWriter);
+        methodCount++;
+    }
+
+    /**
+     * Copies the entities of a closed writer at the end of this one, one element at a time.
+     */
+    @Override
+    public synchronized void append(JsonStreamWriter part) throws IOException {
+        copy(part.typePath, typeWriter);
+        copy(part.methodPath, methodWriter);
+        objectCount += part.getObjectCount();
+        methodCount += part.getMethodCount();
+    }
+
+    private void copy(Path source, JsonWriter target) throws IOException {
+        try (Reader in = openReader(source)) {
+            JsonReader reader = new JsonReader(in);
+            reader.beginArray();
+            while (reader.hasNext()){
+                JsonElement element = JsonParser.parseReader(reader);
+                gson.toJson(element, target);
+            }
+            reader.endArray();
+        }
+    }
+
+    /**
+     * Reads back the types of a closed writer one at a time.
+     */
+    public void forEachObject(Consumer<Object_> consumer) throws IOException {
+        read(typePath, Object_.class, consumer);
+    }
+
+    /**
+     * Reads back the methods of a closed writer one at a time.
+     */
+    public void forEachMethod(Consumer<Executable_> consumer) throws IOException {
+        read(methodPath, Executable_.class, consumer);
+    }
+
+    private <T> void read(Path source, Class<T> type, Consumer<T> consumer) throws IOException {
+        try (Reader in = openReader(source)) {
+            JsonReader reader = new JsonReader(in);
+            reader.beginArray();
+            while (reader.hasNext()){
+                consumer.accept(gson.fromJson(reader, type));
+            }
+            reader.endArray();
+        }
+    }
+
+    /**
+     * Deletes the files of a closed writer.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(typePath);
+        Files.deleteIfExists(methodPath);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        finish(typeWriter, typeOut);
+        finish(methodWriter, methodOut);
+    }
+
+    static void finish(JsonWriter writer, Writer out) throws IOException {
+        writer.endArray();
+        writer.flush();
+        out.write(System.lineSeparator());
+        writer.close();
+    }
+}
@@ -0,0 +1,37 @@
+package output;
+
+import models.Executable_;
+import models.Object_;
+
+import java.util.List;
+
+/**
+ * Keeps the extracted types and methods in memory.
+ */
+public class ListSink implements ResultSink {
+    private final List<Object_> objects;
+    private final List<Executable_> methods;
+
+    public ListSink(List<Object_> objects, List<Executable_> methods) {
+        this.objects = objects;
+        this.methods = methods;
+    }
+
+    public List<Object_> getObjects() {
+        return objects;
+    }
+
+    public List<Executable_> getMethods() {
+        return methods;
+    }
+
+    @Override
+    public void addObject(Object_ object_) {
+        objects.add(object_);
+    }
+
+    @Override
+    public void addMethod(Executable_ method_) {
+        methods.add(method_);
+    }
+}
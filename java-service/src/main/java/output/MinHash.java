@@ -0,0 +1,144 @@
+package output;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content hashing for the deduplication of the extracted code. The exact hash identifies a body; computed on the
+ * code without comments and with its whitespace collapsed, it is shared by the bodies differing only in
+ * formatting. The MinHash signature estimates the Jaccard similarity of the sets of token shingles of two bodies.
+ */
+public final class MinHash {
+    public static final int SIGNATURE_SIZE = 64;
+    public static final int SHINGLE_SIZE = 3;
+    private static final Pattern TOKEN = Pattern.compile("\\w+|[^\\w\\s]");
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED);
+        for (int i = 0; i < SIGNATURE_SIZE; i++){
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    private MinHash() {
+    }
+
+    /**
+     * Removes the comments and collapses the whitespace of some Java code, leaving string and character
+     * literals untouched.
+     */
+    public static String normalize(String code) {
+        StringBuilder builder = new StringBuilder(code.length());
+        int i = 0;
+        boolean space = false;
+        while (i < code.length()){
+            char c = code.charAt(i);
+            if ((c == '/')&&(i + 1 < code.length())&&(code.charAt(i + 1) == '/')){
+                while ((i < code.length())&&(code.charAt(i) != '\n')){
+                    i++;
+                }
+                space = true;
+                continue;
+            }
+            if ((c == '/')&&(i + 1 < code.length())&&(code.charAt(i + 1) == '*')){
+                int end = code.indexOf("*/", i + 2);
+                i = (end < 0) ? code.length() : end + 2;
+                space = true;
+                continue;
+            }
+            if (Character.isWhitespace(c)){
+                space = true;
+                i++;
+                continue;
+            }
+            if ((space)&&(builder.length() > 0))
+                builder.append(' ');
+            space = false;
+            if ((c == '"')||(c == '\'')){
+                int start = i++;
+                while ((i < code.length())&&(code.charAt(i) != c)&&(code.charAt(i) != '\n')){
+                    i += (code.charAt(i) == '\\') ? 2 : 1;
+                }
+                i = Math.min(i + 1, code.length());
+                builder.append(code, start, i);
+                continue;
+            }
+            builder.append(c);
+            i++;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the first 128 bits of the SHA-256 hash of some code, normalized or not, in hexadecimal.
+     */
+    public static String hash(String code) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = digest.digest(code.getBytes(StandardCharsets.UTF_8));
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 16; i++){
+            builder.append(String.format("%02x", bytes[i]));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the MinHash signature of the shingles of normalized code, or null when it has fewer tokens than a
+     * shingle.
+     */
+    public static long[] signature(String normalized) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(normalized);
+        while (matcher.find()){
+            tokens.add(matcher.group());
+        }
+        if (tokens.size() < SHINGLE_SIZE)
+            return null;
+        long[] signature = new long[SIGNATURE_SIZE];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (int start = 0; start + SHINGLE_SIZE <= tokens.size(); start++){
+            long shingle = 1125899906842597L;
+            for (int i = start; i < start + SHINGLE_SIZE; i++){
+                shingle = 31 * shingle + tokens.get(i).hashCode();
+            }
+            for (int i = 0; i < SIGNATURE_SIZE; i++){
+                long value = mix(shingle ^ SEEDS[i]);
+                if (value < signature[i])
+                    signature[i] = value;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the shingles of two bodies from their signatures.
+     */
+    public static double similarity(long[] first, long[] second) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++){
+            if (first[i] == second[i])
+                equal++;
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
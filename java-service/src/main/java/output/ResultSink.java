@@ -0,0 +1,13 @@
+package output;
+
+import models.Executable_;
+import models.Object_;
+
+/**
+ * Receives the types and methods extracted by the processors as soon as they are produced.
+ */
+public interface ResultSink {
+    void addObject(Object_ object_);
+
+    void addMethod(Executable_ method_);
+}
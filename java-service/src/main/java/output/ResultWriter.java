@@ -0,0 +1,21 @@
+package output;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A sink that saves the extracted types and methods to output files.
+ */
+public interface ResultWriter extends ResultSink, Closeable {
+    long getObjectCount();
+
+    long getMethodCount();
+
+    /**
+     * Appends the entities of a closed part file written by another thread.
+     */
+    default void append(JsonStreamWriter part) throws IOException {
+        part.forEachObject(this::addObject);
+        part.forEachMethod(this::addMethod);
+    }
+}
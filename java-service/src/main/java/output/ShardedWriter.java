@@ -0,0 +1,167 @@
+package output;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import models.Executable_;
+import models.Object_;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the types to "typeData.json" like {@link JsonStreamWriter} and the methods of each microservice to
+ * NDJSON shard files of at most a fixed number of records ("methods/&lt;service&gt;-&lt;index&gt;/part-00000.ndjson",
+ * one method per line, where the index is the order in which the microservices were first written so that two
+ * names sanitized alike get their own directories). Only one shard is open at a time: the shard of a microservice
+ * is closed when the methods of another one start, and a new shard is started if the microservice is written to
+ * again. The shards, their microservice and their number of records are listed in "methodIndex.json" when the
+ * writer is closed. With compression, the files end with ".gz" and are gzip-compressed.
+ */
+public class ShardedWriter implements ResultWriter {
+    public static final String INDEX_FILE = "methodIndex.json";
+    public static final String SHARDS_DIR = "methods";
+
+    private final Gson gson = new Gson();
+    private final Path outputDir;
+    private final int shardSize;
+    private final String extension;
+    private final Writer typeOut;
+    private final JsonWriter typeWriter;
+    private final Map<String, String> directories = new LinkedHashMap<>();
+    private final Map<String, Integer> shardCounts = new HashMap<>();
+    private Shard openShard = null;
+    private final List<ShardInfo> shards = new ArrayList<>();
+    private long objectCount = 0;
+    private long methodCount = 0;
+
+    /**
+     * An entry of the index file.
+     */
+    public static class ShardInfo {
+        private final String service;
+        private final String file;
+        private long records;
+
+        private ShardInfo(String service, String file) {
+            this.service = service;
+            this.file = file;
+        }
+
+        public String getService() {
+            return service;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+    }
+
+    private static class Shard {
+        private final ShardInfo info;
+        private final Writer out;
+
+        private Shard(ShardInfo info, Writer out) {
+            this.info = info;
+            this.out = out;
+        }
+    }
+
+    private static class Index {
+        private final String types;
+        private final int shardSize;
+        private final long methods;
+        private final List<ShardInfo> shards;
+
+        private Index(String types, int shardSize, long methods, List<ShardInfo> shards) {
+            this.types = types;
+            this.shardSize = shardSize;
+            this.methods = methods;
+            this.shards = shards;
+        }
+    }
+
+    public ShardedWriter(Path outputDir, int shardSize, boolean compress) throws IOException {
+        this.outputDir = outputDir;
+        this.shardSize = shardSize;
+        this.extension = compress ? ".gz" : "";
+        typeOut = JsonStreamWriter.open(outputDir.resolve("typeData.json" + extension));
+        typeWriter = JsonStreamWriter.begin(typeOut);
+    }
+
+    @Override
+    public synchronized long getObjectCount() {
+        return objectCount;
+    }
+
+    @Override
+    public synchronized long getMethodCount() {
+        return methodCount;
+    }
+
+    @Override
+    public synchronized void addObject(Object_ object_) {
+        gson.toJson(object_, Object_.class, typeWriter);
+        objectCount++;
+    }
+
+    @Override
+    public synchronized void addMethod(Executable_ method_) {
+        try {
+            Shard shard = shardFor(method_.getServiceName());
+            gson.toJson(method_, Executable_.class, shard.out);
+            shard.out.write('\n');
+            shard.info.records++;
+            methodCount++;
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the open shard if it belongs to the microservice and is not full, otherwise closes it and starts the
+     * next shard of the microservice.
+     */
+    private Shard shardFor(String serviceName) throws IOException {
+        String service = (serviceName == null) ? "" : serviceName;
+        if ((openShard != null)&&(openShard.info.service.equals(service))&&(openShard.info.records < shardSize))
+            return openShard;
+        if (openShard != null){
+            openShard.out.close();
+            openShard = null;
+        }
+        String directory = directories.computeIfAbsent(service, s ->
+                (s.isEmpty() ? "_" : s.replaceAll("[^A-Za-z0-9._-]", "_")) + "-" + directories.size());
+        int number = shardCounts.merge(service, 1, Integer::sum) - 1;
+        String file = SHARDS_DIR + "/" + directory + "/" + String.format("part-%05d.ndjson", number) + extension;
+        ShardInfo info = new ShardInfo(service, file);
+        openShard = new Shard(info, JsonStreamWriter.open(outputDir.resolve(file)));
+        shards.add(info);
+        return openShard;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        JsonStreamWriter.finish(typeWriter, typeOut);
+        if (openShard != null){
+            openShard.out.close();
+            openShard = null;
+        }
+        Gson prettyGson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer writer = JsonStreamWriter.open(outputDir.resolve(INDEX_FILE))) {
+            prettyGson.toJson(new Index("typeData.json" + extension, shardSize, methodCount, shards), writer);
+        }
+    }
+}
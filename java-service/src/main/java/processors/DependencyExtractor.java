@@ -0,0 +1,149 @@
+package processors;
+
+import spoon.reflect.code.CtAbstractInvocation;
+import spoon.reflect.code.CtFieldAccess;
+import spoon.reflect.code.CtFieldWrite;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.reference.CtExecutableReference;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtTypeReference;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records, in a {@link DependencyGraph}, the method invocations (including constructor calls), the field reads
+ * and writes of each method and constructor, and the types referenced by each type. The dependencies are
+ * collected while the {@link FusedScanner} walks the model, for the innermost enclosing method (so a call in a
+ * method of an anonymous or local class is counted once, for that method) and type, and added to the graph when
+ * the walk leaves a type, so the graph is built in the same order as by a processor of the types.
+ */
+public class DependencyExtractor implements Extractor {
+    private final DependencyGraph graph;
+    private final Deque<CtType<?>> types = new ArrayDeque<>();
+    private final Deque<CtExecutable<?>> executables = new ArrayDeque<>();
+    private final Map<CtElement, Dependencies> dependencies = new IdentityHashMap<>();
+
+    /**
+     * The dependencies found so far in a type or an executable.
+     */
+    private static class Dependencies {
+        private final List<String> calls = new ArrayList<>();
+        private final List<CtFieldAccess<?>> accesses = new ArrayList<>();
+        private final List<String> references = new ArrayList<>();
+    }
+
+    public DependencyExtractor(DependencyGraph graph) {
+        this.graph = graph;
+    }
+
+    public DependencyGraph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public Set<Class<? extends CtElement>> getElementTypes() {
+        return new HashSet<>(Arrays.asList(CtType.class, CtMethod.class, CtConstructor.class,
+                CtAbstractInvocation.class, CtFieldAccess.class, CtTypeReference.class));
+    }
+
+    @Override
+    public void visit(CtElement element) {
+        if (element instanceof CtType){
+            types.push((CtType<?>) element);
+        }
+        else if ((element instanceof CtMethod)||(element instanceof CtConstructor)){
+            executables.push((CtExecutable<?>) element);
+        }
+        else if (element instanceof CtAbstractInvocation){
+            CtExecutableReference<?> reference = ((CtAbstractInvocation<?>) element).getExecutable();
+            if ((reference == null)||(reference.getDeclaringType() == null)||(executables.isEmpty()))
+                return;
+            String callee = reference.getDeclaringType().getQualifiedName() + "::" + reference.getSignature();
+            get(executables.peek()).calls.add(callee);
+        }
+        else if (element instanceof CtFieldAccess){
+            if (!executables.isEmpty())
+                get(executables.peek()).accesses.add((CtFieldAccess<?>) element);
+        }
+        if ((element instanceof CtTypeReference)&&(!types.isEmpty())){
+            CtTypeReference<?> reference = (CtTypeReference<?>) element;
+            if (reference.isPrimitive())
+                return;
+            String referenceName = reference.getQualifiedName();
+            if ((referenceName != null)&&(!referenceName.equals(types.peek().getQualifiedName())))
+                get(types.peek()).references.add(referenceName);
+        }
+    }
+
+    @Override
+    public void leave(CtElement element) {
+        if (element instanceof CtType){
+            types.pop();
+            addType((CtType<?>) element);
+        }
+        else if ((element instanceof CtMethod)||(element instanceof CtConstructor)){
+            executables.pop();
+        }
+    }
+
+    @Override
+    public void finish() {
+        dependencies.clear();
+    }
+
+    private Dependencies get(CtElement element) {
+        return dependencies.computeIfAbsent(element, e -> new Dependencies());
+    }
+
+    private void addType(CtType<?> ctType) {
+        String typeName = ctType.getQualifiedName();
+        graph.declare(DependencyGraph.NodeKind.type, typeName);
+        for (CtField<?> field: ctType.getFields()){
+            graph.declare(DependencyGraph.NodeKind.field, typeName + "#" + field.getSimpleName());
+        }
+        List<CtExecutable<?>> members = new ArrayList<>(ctType.getMethods());
+        if (ctType instanceof CtClass){
+            members.addAll(((CtClass<?>) ctType).getConstructors());
+        }
+        for (CtExecutable<?> executable: members){
+            Dependencies found = dependencies.remove(executable);
+            if (!executable.getPosition().isValidPosition())
+                continue;
+            String methodName = typeName + "::" + executable.getSignature();
+            graph.declare(DependencyGraph.NodeKind.method, methodName);
+            if (found == null)
+                continue;
+            for (String callee: found.calls){
+                graph.addEdge(DependencyGraph.Relation.calls, methodName, callee);
+            }
+            for (CtFieldAccess<?> access: found.accesses){
+                CtFieldReference<?> reference = access.getVariable();
+                if ((reference == null)||(reference.getDeclaringType() == null))
+                    continue;
+                String fieldName = reference.getDeclaringType().getQualifiedName() + "#" + reference.getSimpleName();
+                graph.addEdge((access instanceof CtFieldWrite) ? DependencyGraph.Relation.writes :
+                        DependencyGraph.Relation.reads, methodName, fieldName);
+            }
+        }
+        Dependencies found = dependencies.remove(ctType);
+        if (found == null)
+            return;
+        for (String referenceName: found.references){
+            graph.addEdge(DependencyGraph.Relation.references, typeName, referenceName);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package processors;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The dependencies between the types, methods and fields of an application, with integer node ids. The nodes are
+ * named like the extracted entities: the qualified name for types, "Type::signature" for methods (the fullName
+ * of {@link models.Executable_}) and "Type#field" for fields. A node is "declared" when its declaration was
+ * part of the analyzed code, as opposed to library code that is only referenced. The graph of an application
+ * keys its nodes by microservice and name, since the same type may be declared by several microservices; the
+ * graph of one microservice, as built by the {@link DependencyExtractor}, has no microservice names.
+ */
+public class DependencyGraph {
+    public enum NodeKind {
+        type,
+        method,
+        field
+    }
+
+    public enum Relation {
+        calls(NodeKind.method, NodeKind.method),
+        reads(NodeKind.method, NodeKind.field),
+        writes(NodeKind.method, NodeKind.field),
+        references(NodeKind.type, NodeKind.type);
+
+        private final NodeKind source;
+        private final NodeKind target;
+
+        Relation(NodeKind source, NodeKind target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        public NodeKind getSource() {
+            return source;
+        }
+
+        public NodeKind getTarget() {
+            return target;
+        }
+    }
+
+    private static class Nodes {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Integer> services = new ArrayList<>();
+        private final BitSet declared = new BitSet();
+    }
+
+    private static class Edges {
+        private final Set<Long> keys = new HashSet<>();
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int size = 0;
+
+        private void add(int source, int target) {
+            if (!keys.add(((long) source << 32) | (target & 0xffffffffL)))
+                return;
+            if (size == sources.length){
+                sources = java.util.Arrays.copyOf(sources, size * 2);
+                targets = java.util.Arrays.copyOf(targets, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            size++;
+        }
+    }
+
+    private final Map<NodeKind, Nodes> nodes = new EnumMap<>(NodeKind.class);
+    private final Map<Relation, Edges> edges = new EnumMap<>(Relation.class);
+    private final Map<String, Integer> serviceIds = new HashMap<>();
+    private final List<String> services = new ArrayList<>();
+
+    public DependencyGraph() {
+        for (NodeKind kind: NodeKind.values()){
+            nodes.put(kind, new Nodes());
+        }
+        for (Relation relation: Relation.values()){
+            edges.put(relation, new Edges());
+        }
+    }
+
+    /**
+     * Returns the id of a node, adding it if needed.
+     */
+    public synchronized int node(NodeKind kind, String name) {
+        return node(kind, null, name);
+    }
+
+    /**
+     * Returns the id of the node of a microservice (or of no microservice when it is null), adding it if needed.
+     */
+    public synchronized int node(NodeKind kind, String service, String name) {
+        Nodes table = nodes.get(kind);
+        int serviceId = serviceId(service);
+        String key = (serviceId < 0) ? name : serviceId + "\0" + name;
+        Integer id = table.ids.get(key);
+        if (id == null){
+            id = table.names.size();
+            table.ids.put(key, id);
+            table.names.add(name);
+            table.services.add(serviceId);
+        }
+        return id;
+    }
+
+    public synchronized int declare(NodeKind kind, String name) {
+        return declare(kind, null, name);
+    }
+
+    public synchronized int declare(NodeKind kind, String service, String name) {
+        int id = node(kind, service, name);
+        nodes.get(kind).declared.set(id);
+        return id;
+    }
+
+    private int serviceId(String service) {
+        if (service == null)
+            return -1;
+        Integer id = serviceIds.get(service);
+        if (id == null){
+            id = services.size();
+            serviceIds.put(service, id);
+            services.add(service);
+        }
+        return id;
+    }
+
+    public synchronized void addEdge(Relation relation, String source, String target) {
+        edges.get(relation).add(node(relation.source, source), node(relation.target, target));
+    }
+
+    public synchronized int getNodeCount(NodeKind kind) {
+        return nodes.get(kind).names.size();
+    }
+
+    public synchronized String getName(NodeKind kind, int id) {
+        return nodes.get(kind).names.get(id);
+    }
+
+    /**
+     * Returns the microservice of a node, or null when it has none.
+     */
+    public synchronized String getService(NodeKind kind, int id) {
+        int serviceId = nodes.get(kind).services.get(id);
+        return (serviceId < 0) ? null : services.get(serviceId);
+    }
+
+    public synchronized boolean isDeclared(NodeKind kind, int id) {
+        return nodes.get(kind).declared.get(id);
+    }
+
+    public synchronized int getEdgeCount(Relation relation) {
+        return edges.get(relation).size;
+    }
+
+    public synchronized int getEdgeSource(Relation relation, int index) {
+        return edges.get(relation).sources[index];
+    }
+
+    public synchronized int getEdgeTarget(Relation relation, int index) {
+        return edges.get(relation).targets[index];
+    }
+
+    /**
+     * Adds the nodes and edges of another graph, renumbering its nodes and keeping their microservices.
+     */
+    public synchronized void merge(DependencyGraph other) {
+        merge(null, other);
+    }
+
+    /**
+     * Adds the nodes and edges of the graph of one microservice, renumbering its nodes. The nodes without a
+     * microservice are added to the given one, so that a type declared by two microservices gives two nodes.
+     */
+    public synchronized void merge(String service, DependencyGraph other) {
+        synchronized (other){
+            Map<NodeKind, int[]> mapping = new EnumMap<>(NodeKind.class);
+            for (NodeKind kind: NodeKind.values()){
+                Nodes table = other.nodes.get(kind);
+                int[] ids = new int[table.names.size()];
+                for (int i = 0; i < ids.length; i++){
+                    int serviceId = table.services.get(i);
+                    String nodeService = (serviceId < 0) ? service : other.services.get(serviceId);
+                    ids[i] = table.declared.get(i) ? declare(kind, nodeService, table.names.get(i)) :
+                            node(kind, nodeService, table.names.get(i));
+                }
+                mapping.put(kind, ids);
+            }
+            for (Relation relation: Relation.values()){
+                Edges source = other.edges.get(relation);
+                int[] sourceIds = mapping.get(relation.source);
+                int[] targetIds = mapping.get(relation.target);
+                for (int i = 0; i < source.size; i++){
+                    edges.get(relation).add(sourceIds[source.sources[i]], targetIds[source.targets[i]]);
+                }
+            }
+        }
+    }
+}
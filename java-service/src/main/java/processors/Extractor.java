@@ -0,0 +1,32 @@
+package processors;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
+
+import java.util.Set;
+
+/**
+ * An extraction run during the single walk of a model by the {@link FusedScanner}. The scanner hands it the
+ * elements that are instances of one of its element types, once before their children (visit) and once after
+ * them (leave). Each extractor saves its results to its own sink.
+ */
+public interface Extractor {
+    Set<Class<? extends CtElement>> getElementTypes();
+
+    /**
+     * Called before the walk, with the factory of the model.
+     */
+    default void init(Factory factory) {
+    }
+
+    void visit(CtElement element);
+
+    default void leave(CtElement element) {
+    }
+
+    /**
+     * Called after the walk.
+     */
+    default void finish() {
+    }
+}
@@ -0,0 +1,82 @@
+package processors;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtModule;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.CtScanner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs all the registered {@link Extractor}s during a single walk of a model, instead of one walk per Spoon
+ * processor. The walk goes through every module of the model (the unnamed module and the named modules of a
+ * modular project), like the launcher's processing, so the elements reach each extractor in the same order as they
+ * would reach an equivalent processor. The extractors interested in each class of element are looked up once per
+ * class.
+ */
+public class FusedScanner extends CtScanner {
+    private static final Extractor[] NONE = new Extractor[0];
+    private final List<Extractor> extractors = new ArrayList<>();
+    private final Map<Class<?>, Extractor[]> dispatch = new HashMap<>();
+
+    public FusedScanner add(Extractor extractor) {
+        extractors.add(extractor);
+        dispatch.clear();
+        return this;
+    }
+
+    public List<Extractor> getExtractors() {
+        return extractors;
+    }
+
+    /**
+     * Walks the whole model of a factory once, between the initialization and the end of every extractor.
+     */
+    public void run(Factory factory) {
+        for (Extractor extractor: extractors){
+            extractor.init(factory);
+        }
+        for (CtModule module: factory.getModel().getAllModules()){
+            scan(module);
+        }
+        for (Extractor extractor: extractors){
+            extractor.finish();
+        }
+    }
+
+    @Override
+    protected void enter(CtElement element) {
+        for (Extractor extractor: getExtractors(element)){
+            extractor.visit(element);
+        }
+    }
+
+    @Override
+    protected void exit(CtElement element) {
+        Extractor[] matching = getExtractors(element);
+        for (int i = matching.length - 1; i >= 0; i--){
+            matching[i].leave(element);
+        }
+    }
+
+    private Extractor[] getExtractors(CtElement element) {
+        Extractor[] matching = dispatch.get(element.getClass());
+        if (matching != null)
+            return matching;
+        List<Extractor> found = new ArrayList<>();
+        for (Extractor extractor: extractors){
+            for (Class<? extends CtElement> type: extractor.getElementTypes()){
+                if (type.isInstance(element)){
+                    found.add(extractor);
+                    break;
+                }
+            }
+        }
+        matching = found.isEmpty() ? NONE : found.toArray(new Extractor[0]);
+        dispatch.put(element.getClass(), matching);
+        return matching;
+    }
+}
@@ -0,0 +1,44 @@
+package processors;
+
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Indexes the methods by their declaring type and signature so that the body of a method is extracted only
+ * once, even when it is inherited by many types. Only the contents of inherited methods are kept, since those
+ * are the ones requested again by the subclasses.
+ */
+public class MethodRegistry {
+    private final Map<String, String> inheritedContents = new ConcurrentHashMap<>();
+
+    /**
+     * The name of a method as declared in its own type, e.g. "com.example.Base::getId()".
+     */
+    public static String key(CtType<?> declaringType, CtMethod<?> method) {
+        return declaringType.getQualifiedName() + "::" + method.getSignature();
+    }
+
+    /**
+     * Returns the content of a method processed in its declaring type, reusing it if a subclass already
+     * extracted it.
+     */
+    public String getDeclaredContent(String key, Supplier<String> extractor) {
+        String content = inheritedContents.get(key);
+        return (content != null) ? content : extractor.get();
+    }
+
+    /**
+     * Returns the content of a method inherited by another type, extracting it only the first time.
+     */
+    public String getInheritedContent(String key, Supplier<String> extractor) {
+        return inheritedContents.computeIfAbsent(key, k -> extractor.get());
+    }
+
+    public int size() {
+        return inheritedContents.size();
+    }
+}
@@ -0,0 +1,66 @@
+package processors;
+
+import spoon.processing.Processor;
+import spoon.processing.TraversalStrategy;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Runs a Spoon {@link Processor} (such as the {@link TypeProcessor}) as an {@link Extractor}, with the same
+ * element types, filter and traversal strategy as when it is added to a launcher.
+ */
+public class ProcessorExtractor<E extends CtElement> implements Extractor {
+    private final Processor<E> processor;
+
+    public ProcessorExtractor(Processor<E> processor) {
+        this.processor = processor;
+    }
+
+    public Processor<E> getProcessor() {
+        return processor;
+    }
+
+    @Override
+    public Set<Class<? extends CtElement>> getElementTypes() {
+        return new HashSet<>(processor.getProcessedElementTypes());
+    }
+
+    @Override
+    public void init(Factory factory) {
+        processor.setFactory(factory);
+        processor.init();
+    }
+
+    @Override
+    public void visit(CtElement element) {
+        if (processor.getTraversalStrategy() == TraversalStrategy.PRE_ORDER)
+            process(element);
+    }
+
+    @Override
+    public void leave(CtElement element) {
+        if (processor.getTraversalStrategy() == TraversalStrategy.POST_ORDER)
+            process(element);
+    }
+
+    /**
+     * Processes an element if it is an instance of all the processed element types, as Spoon requires.
+     */
+    @SuppressWarnings("unchecked")
+    private void process(CtElement element) {
+        for (Class<? extends CtElement> type: processor.getProcessedElementTypes()){
+            if (!type.isInstance(element))
+                return;
+        }
+        if (processor.isToBeProcessed((E) element))
+            processor.process((E) element);
+    }
+
+    @Override
+    public void finish() {
+        processor.processingDone();
+    }
+}
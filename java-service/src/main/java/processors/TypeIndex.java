@@ -0,0 +1,288 @@
+package processors;
+
+import models.Executable_;
+import models.Object_;
+import models.SymbolTable;
+import output.ResultSink;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.reference.CtTypeReference;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A lightweight index of the types of a microservice (their supertypes and the names and positions of their
+ * declared methods) that outlives the Spoon models. It is used when a microservice is analyzed in several
+ * chunks: the methods inherited from a type of another chunk cannot be found by {@link CtType#getAllMethods()},
+ * so they are emitted from the index once all the chunks have been processed. In "printed" mode, the printed
+ * code of the declared methods is kept in a temporary file until then, so that the expanded inherited methods
+ * have the same content as in a run without chunks.
+ */
+public class TypeIndex implements Closeable {
+    private static class MethodRecord {
+        private final String signature;
+        private final String simpleName;
+        private final String file;
+        private final int start;
+        private final int end;
+        private long printedOffset = -1;
+        private int printedLength = 0;
+
+        private MethodRecord(String signature, String simpleName, String file, int start, int end) {
+            this.signature = signature;
+            this.simpleName = simpleName;
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static class TypeRecord {
+        private final List<String> supertypes = new ArrayList<>();
+        private final List<MethodRecord> methods = new ArrayList<>();
+        private final Set<String> emitted = new HashSet<>();
+        private final Map<String, String> printed = new HashMap<>();
+        private boolean indexed = false;
+    }
+
+    private final Map<String, TypeRecord> types = new LinkedHashMap<>();
+    private String cachedFile = null;
+    private String cachedSource = null;
+    private TypeProcessor.ContentMode contentMode = TypeProcessor.ContentMode.printed;
+    private TypeProcessor.InheritedMethods inheritedMethods = TypeProcessor.InheritedMethods.expanded;
+    private int maxContentLength = 0;
+    private SymbolTable symbolTable = new SymbolTable();
+    private Path printedPath = null;
+    private OutputStream printedOut = null;
+    private long printedSize = 0;
+    private int sourceFallbacks = 0;
+
+    /**
+     * Sets how the content of the expanded inherited methods is stored, as in {@link TypeProcessor}. In "printed"
+     * mode, it is the printed code kept for their declaring type; in "source" mode, and when the printed code is
+     * not available, it is read from the source files; in "reference" mode, only its position is kept.
+     */
+    public void setContentMode(TypeProcessor.ContentMode contentMode) {
+        this.contentMode = contentMode;
+    }
+
+    public void setInheritedMethods(TypeProcessor.InheritedMethods inheritedMethods) {
+        this.inheritedMethods = inheritedMethods;
+    }
+
+    public void setMaxContentLength(int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * Sets the symbol table in which the names of the expanded inherited methods are kept, as in
+     * {@link TypeProcessor}.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    private synchronized TypeRecord get(String qualifiedName) {
+        return types.computeIfAbsent(qualifiedName, t -> new TypeRecord());
+    }
+
+    /**
+     * Records the supertypes and the declared methods of a type, once the methods of its chunk have been emitted.
+     * The printed code emitted for its declared methods is moved to the temporary file.
+     */
+    public void index(CtType<?> ctType) throws IOException {
+        TypeRecord record = get(ctType.getQualifiedName());
+        record.indexed = true;
+        if (ctType.getSuperclass() != null)
+            record.supertypes.add(ctType.getSuperclass().getQualifiedName());
+        for (CtTypeReference<?> superInterface: ctType.getSuperInterfaces()){
+            record.supertypes.add(superInterface.getQualifiedName());
+        }
+        for (CtMethod<?> method: ctType.getMethods()){
+            SourcePosition position = method.getPosition();
+            if ((!position.isValidPosition())||(position.getFile() == null))
+                continue;
+            MethodRecord methodRecord = new MethodRecord(method.getSignature(), method.getSimpleName(),
+                    position.getFile().getPath(), position.getSourceStart(), position.getSourceEnd());
+            String printed = record.printed.get(methodRecord.signature);
+            if (printed != null)
+                spill(methodRecord, printed);
+            record.methods.add(methodRecord);
+        }
+        record.printed.clear();
+    }
+
+    /**
+     * Whether the printed code of the declared methods is needed for the expanded inherited methods.
+     */
+    private boolean keepsPrinted() {
+        return (contentMode == TypeProcessor.ContentMode.printed)&&
+                (inheritedMethods == TypeProcessor.InheritedMethods.expanded);
+    }
+
+    private void spill(MethodRecord method, String printed) throws IOException {
+        if (printedOut == null){
+            printedPath = Files.createTempFile("typeIndex", ".tmp");
+            printedOut = new BufferedOutputStream(Files.newOutputStream(printedPath), 1 << 16);
+        }
+        byte[] bytes = printed.getBytes(StandardCharsets.UTF_8);
+        printedOut.write(bytes);
+        method.printedOffset = printedSize;
+        method.printedLength = bytes.length;
+        printedSize += bytes.length;
+    }
+
+    /**
+     * Wraps a sink to remember which methods were already emitted for each type, and their printed code until the
+     * type is indexed.
+     */
+    public ResultSink track(ResultSink sink) {
+        return new ResultSink() {
+            @Override
+            public void addObject(Object_ object_) {
+                sink.addObject(object_);
+            }
+
+            @Override
+            public void addMethod(Executable_ method_) {
+                String parentName = method_.getParentName();
+                if ((parentName != null)&&(method_.getFullName().startsWith(parentName + "::"))){
+                    TypeRecord record = get(parentName);
+                    String signature = method_.getFullName().substring(parentName.length() + 2);
+                    record.emitted.add(signature);
+                    if ((keepsPrinted())&&(method_.getContent() != null))
+                        record.printed.put(signature, method_.getContent());
+                }
+                sink.addMethod(method_);
+            }
+        };
+    }
+
+    /**
+     * Emits, for every indexed type, the inherited methods that were not emitted while processing its chunk. The
+     * content of expanded methods is the printed code kept for their declaring type or, in "source" mode or
+     * when it was not kept, the text sliced from their source file (see {@link #getSourceFallbacks()}).
+     */
+    public int emitInheritedMethods(String serviceName, ResultSink sink) throws IOException {
+        if (printedOut != null)
+            printedOut.flush();
+        try (FileChannel printed = (printedPath == null) ? null : FileChannel.open(printedPath,
+                StandardOpenOption.READ)) {
+            return emitInheritedMethods(serviceName, sink, printed);
+        }
+    }
+
+    private int emitInheritedMethods(String serviceName, ResultSink sink, FileChannel printed) throws IOException {
+        int count = 0;
+        for (Map.Entry<String, TypeRecord> type: types.entrySet()){
+            TypeRecord record = type.getValue();
+            if (!record.indexed)
+                continue;
+            Set<String> visited = new HashSet<>();
+            Deque<String> queue = new ArrayDeque<>(record.supertypes);
+            while (!queue.isEmpty()){
+                String supertypeName = queue.poll();
+                TypeRecord supertype = types.get(supertypeName);
+                if ((!visited.add(supertypeName))||(supertype == null)||(!supertype.indexed))
+                    continue;
+                for (MethodRecord method: supertype.methods){
+                    if (!record.emitted.add(method.signature))
+                        continue;
+                    Executable_ method_ = new Executable_(symbolTable);
+                    if (inheritedMethods == TypeProcessor.InheritedMethods.reference)
+                        method_.setInheritedFrom(supertypeName + "::" + method.signature);
+                    else if (contentMode == TypeProcessor.ContentMode.reference){
+                        method_.setFilePath(method.file);
+                        method_.setStartOffset(method.start);
+                        method_.setEndOffset(method.end + 1);
+                    }
+                    else if ((printed != null)&&(method.printedOffset >= 0))
+                        method_.setContent(readPrinted(printed, method));
+                    else {
+                        if (contentMode == TypeProcessor.ContentMode.printed)
+                            sourceFallbacks++;
+                        method_.setContent(readSource(method));
+                    }
+                    method_.setSimpleName(method.simpleName);
+                    method_.setParentName(type.getKey());
+                    method_.setServiceName(serviceName);
+                    method_.setFullName(type.getKey() + "::" + method.signature);
+                    sink.addMethod(method_);
+                    count++;
+                }
+                queue.addAll(supertype.supertypes);
+            }
+        }
+        return count;
+    }
+
+    private static String readPrinted(FileChannel printed, MethodRecord method) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(method.printedLength);
+        while (buffer.hasRemaining()){
+            if (printed.read(buffer, method.printedOffset + buffer.position()) < 0)
+                throw new EOFException("Truncated printed code of " + method.signature);
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    private String readSource(MethodRecord method) throws IOException {
+        if (!method.file.equals(cachedFile)){
+            cachedSource = new String(Files.readAllBytes(Paths.get(method.file)), StandardCharsets.UTF_8);
+            cachedFile = method.file;
+        }
+        int end = Math.min(method.end + 1, cachedSource.length());
+        if (maxContentLength > 0)
+            end = Math.min(end, method.start + maxContentLength);
+        return cachedSource.substring(method.start, end);
+    }
+
+    /**
+     * Returns the number of expanded inherited methods that have their source text instead of their printed code
+     * in "printed" mode, because the printed code of their declaring type was not emitted.
+     */
+    public int getSourceFallbacks() {
+        return sourceFallbacks;
+    }
+
+    public synchronized int size() {
+        return types.size();
+    }
+
+    /**
+     * Deletes the temporary file of the printed code.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (printedOut != null)
+                printedOut.close();
+        }
+        finally {
+            if (printedPath != null)
+                Files.deleteIfExists(printedPath);
+            printedOut = null;
+            printedPath = null;
+        }
+    }
+}
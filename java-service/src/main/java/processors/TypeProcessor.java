@@ -1,19 +1,61 @@
 package processors;
 
-import ch.qos.logback.classic.Level;
+import metrics.PhaseMetrics;
 import models.Executable_;
 import models.Object_;
+import models.SymbolTable;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import output.ListSink;
+import output.ResultSink;
 import spoon.processing.AbstractProcessor;
+import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.*;
 import ch.qos.logback.classic.Logger;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class TypeProcessor extends AbstractProcessor<CtType<?>> {
+    /**
+     * How the content of the types and methods is obtained: "printed" regenerates the code with Spoon's
+     * pretty-printer, "source" copies the original text of the element from its source file and "reference"
+     * stores no content, only the file path and the offsets of the element, to be read later with
+     * {@link models.ContentReader}.
+     */
+    public enum ContentMode {
+        printed,
+        source,
+        reference
+    }
+
+    /**
+     * How the methods inherited from another type are emitted: "expanded" repeats the complete method (with its
+     * content) under every subclass, while "reference" emits it once in its declaring type and only a
+     * lightweight reference (without content) under the subclasses.
+     */
+    public enum InheritedMethods {
+        expanded,
+        reference
+    }
 
-public class TypeProcessor extends AbstractProcessor<CtType> {
     private List<Object_> objects;
     private List<Executable_> methods;
+    private ResultSink sink;
+    private Set<String> filesToProcess = null;
+    private ContentMode contentMode = ContentMode.printed;
+    private InheritedMethods inheritedMethods = InheritedMethods.expanded;
+    private int maxContentLength = 0;
+    private boolean typeContent = true;
+    private MethodRegistry methodRegistry = new MethodRegistry();
+    private SymbolTable symbolTable = new SymbolTable();
     private static Logger consoleLogger = (Logger) LoggerFactory.getLogger("consoleLogger");
     private static Logger fileLogger = (Logger) LoggerFactory.getLogger("fileLogger");
     private String serviceName;
@@ -34,17 +76,83 @@ public class TypeProcessor extends AbstractProcessor<CtType> {
         return methods;
     }
 
+    public ResultSink getSink() {
+        return sink;
+    }
+
+    public Set<String> getFilesToProcess() {
+        return filesToProcess;
+    }
+
+    /**
+     * Restricts the processing to the types declared in the given files (canonical paths). The other types are
+     * still part of the model and can be used to resolve inherited methods. A null value processes every type.
+     */
+    public void setFilesToProcess(Set<String> filesToProcess) {
+        this.filesToProcess = filesToProcess;
+    }
+
+    public ContentMode getContentMode() {
+        return contentMode;
+    }
+
+    public void setContentMode(ContentMode contentMode) {
+        this.contentMode = contentMode;
+    }
+
+    public int getMaxContentLength() {
+        return maxContentLength;
+    }
+
+    /**
+     * Truncates the content of each type and method to the given number of characters (0 keeps it whole).
+     */
+    public void setMaxContentLength(int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    public boolean isTypeContent() {
+        return typeContent;
+    }
+
+    /**
+     * Whether the content of the types is extracted; when disabled only their methods have a content.
+     */
+    public void setTypeContent(boolean typeContent) {
+        this.typeContent = typeContent;
+    }
+
+    public InheritedMethods getInheritedMethods() {
+        return inheritedMethods;
+    }
+
+    public void setInheritedMethods(InheritedMethods inheritedMethods) {
+        this.inheritedMethods = inheritedMethods;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * Sets the symbol table in which the names of the extracted entities are kept, usually the one of the run.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
     public TypeProcessor() {
         super();
         objects = new ArrayList<>();
         methods = new ArrayList<>();
-
+        sink = new ListSink(objects, methods);
     }
 
     public TypeProcessor(ArrayList<Object_> objects, ArrayList<Executable_> methods) {
         super();
         this.objects = objects;
         this.methods = methods;
+        this.sink = new ListSink(objects, methods);
         this.serviceName = null;
     }
 
@@ -52,6 +160,7 @@ public class TypeProcessor extends AbstractProcessor<CtType> {
         super();
         this.objects = objects;
         this.methods = methods;
+        this.sink = new ListSink(objects, methods);
         this.serviceName = serviceName;
     }
 
@@ -60,16 +169,104 @@ public class TypeProcessor extends AbstractProcessor<CtType> {
         super();
         this.objects = objects;
         this.methods = methods;
+        this.sink = new ListSink(objects, methods);
         this.serviceName = serviceName;
         this.logLevel = logLevel;
     }
 
+    public TypeProcessor(ResultSink sink, String serviceName, String logLevel) {
+        super();
+        if (sink instanceof ListSink){
+            this.objects = ((ListSink) sink).getObjects();
+            this.methods = ((ListSink) sink).getMethods();
+        }
+        else {
+            this.objects = new ArrayList<>();
+            this.methods = new ArrayList<>();
+        }
+        this.sink = sink;
+        this.serviceName = serviceName;
+        this.logLevel = logLevel;
+    }
+
+    /**
+     * Creates a processor with the same settings, method registry and symbol table as the given one, emitting to
+     * another sink.
+     */
+    private TypeProcessor(TypeProcessor settings, ResultSink sink) {
+        this(sink, settings.serviceName, settings.logLevel);
+        this.filesToProcess = settings.filesToProcess;
+        this.contentMode = settings.contentMode;
+        this.inheritedMethods = settings.inheritedMethods;
+        this.maxContentLength = settings.maxContentLength;
+        this.typeContent = settings.typeContent;
+        this.methodRegistry = settings.methodRegistry;
+        this.symbolTable = settings.symbolTable;
+    }
+
+    /**
+     * Processes the types of a built model on a fork-join pool instead of through the launcher. The types are
+     * split into chunks of consecutive types; each chunk is extracted by a copy of this processor (sharing its
+     * method registry) into buffers of its own, one per type, and the buffers are then emitted to the sink in the
+     * order of the types, so the results are the same as with a sequential run. The extraction only reads the
+     * model. Returns the CPU time and the allocations of the workers, measured on their threads.
+     */
+    public PhaseMetrics processInParallel(List<CtType<?>> types, int threads)
+            throws InterruptedException, ExecutionException {
+        int chunkCount = Math.min(types.size(), threads * 4);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Map<String, String> logContext = MDC.getCopyOfContextMap();
+        PhaseMetrics workers = new PhaseMetrics();
+        List<List<ListSink>> chunks;
+        try {
+            chunks = pool.submit(() -> IntStream.range(0, chunkCount).parallel().mapToObj(chunk -> {
+                if (logContext != null)
+                    MDC.setContextMap(logContext);
+                PhaseMetrics.Measure worker = PhaseMetrics.start();
+                List<ListSink> buffers = new ArrayList<>();
+                int start = (int) ((long) types.size() * chunk / chunkCount);
+                int end = (int) ((long) types.size() * (chunk + 1) / chunkCount);
+                for (CtType<?> ctType: types.subList(start, end)){
+                    if (!isToBeProcessed(ctType))
+                        continue;
+                    ListSink buffer = new ListSink(new ArrayList<>(), new ArrayList<>());
+                    new TypeProcessor(this, buffer).process(ctType);
+                    buffers.add(buffer);
+                }
+                workers.add(worker.stop());
+                return buffers;
+            }).collect(Collectors.toList())).get();
+        }
+        finally {
+            pool.shutdown();
+        }
+        for (List<ListSink> buffers: chunks){
+            for (ListSink buffer: buffers){
+                buffer.getMethods().forEach(sink::addMethod);
+                buffer.getObjects().forEach(sink::addObject);
+            }
+        }
+        return workers;
+    }
+
     @Override
-    public void process(CtType ctType) {
-        if (!(logLevel.equals("default")))
-            consoleLogger.setLevel(Level.toLevel(logLevel));
+    public boolean isToBeProcessed(CtType<?> candidate) {
+        if (filesToProcess == null)
+            return true;
+        if ((candidate.getPosition() == null)||(candidate.getPosition().getFile() == null))
+            return false;
+        try {
+            return filesToProcess.contains(candidate.getPosition().getFile().getCanonicalPath());
+        }
+        catch (IOException e){
+            return false;
+        }
+    }
+
+    @Override
+    public void process(CtType<?> ctType) {
         // logger.info("Started processing type \"" + ctType.getQualifiedName() + "\"");
-        Object_ object_ = new Object_();
+        Object_ object_ = new Object_(symbolTable);
         String logText = "class";
         CtClass ctClass;
         CtAnnotationType ctAnnotationType;
@@ -95,12 +292,11 @@ public class TypeProcessor extends AbstractProcessor<CtType> {
                     ctClass = null;
                 }
                 catch (ClassCastException e2){
-                    consoleLogger.debug(
-                            "encountered cast error in line " + ctType.getOriginalSourceFragment().getSourcePosition()
-                    );
-                    fileLogger.debug(
-                            "encountered cast error in line " + ctType.getOriginalSourceFragment().getSourcePosition()
-                    );
+                    if (fileLogger.isDebugEnabled()||consoleLogger.isDebugEnabled()){
+                        SourcePosition position = ctType.getOriginalSourceFragment().getSourcePosition();
+                        consoleLogger.debug("encountered cast error in line {}", position);
+                        fileLogger.debug("encountered cast error in line {}", position);
+                    }
                     return;
                 }
             }
@@ -108,13 +304,18 @@ public class TypeProcessor extends AbstractProcessor<CtType> {
         object_.setSimpleName(ctType.getSimpleName());
         object_.setFullName(ctType.getQualifiedName());
         object_.setServiceName(serviceName);
-        object_.setContent(ctType.toString());
+        if (typeContent)
+            object_.setContent(getContent(ctType));
         try {
             object_.setFilePath(ctType.getPosition().getFile().toString());
+            if (contentMode == ContentMode.reference){
+                object_.setStartOffset(ctType.getPosition().getSourceStart());
+                object_.setEndOffset(ctType.getPosition().getSourceEnd() + 1);
+            }
         }
         catch (NullPointerException e){
-            consoleLogger.debug("File not found for \"" + ctType.getQualifiedName() + "\"");
-            fileLogger.debug("File not found for \"" + ctType.getQualifiedName() + "\"");
+            consoleLogger.debug("File not found for \"{}\"", ctType.getQualifiedName());
+            fileLogger.debug("File not found for \"{}\"", ctType.getQualifiedName());
             object_.setFilePath("$$UNKNOWNPATH$$");
         }
         //logger.debug("Adding methods and parameter and return types for \"" + ctType.getSimpleName() + "\"");
@@ -124,11 +325,24 @@ public class TypeProcessor extends AbstractProcessor<CtType> {
             //String methodName = method.getSimpleName();
             //logger.debug("Processing method \"" + methodName + "\" for " + logText + " \"" +
             // ctType.getSimpleName() + "\"");
-            Executable_ method_ = new Executable_();
-            if (method.getPosition().isValidPosition())
-                method_.setContent(method.toString());
-            else
+            if (!method.getPosition().isValidPosition())
                 continue;
+            Executable_ method_ = new Executable_(symbolTable);
+            CtType<?> declaringType = method.getDeclaringType();
+            if ((declaringType == null)||(declaringType.getQualifiedName().equals(ctType.getQualifiedName()))){
+                String key = MethodRegistry.key(ctType, method);
+                method_.setContent(methodRegistry.getDeclaredContent(key, () -> getContent(method)));
+                setSourceRange(method_, method);
+            }
+            else {
+                String key = MethodRegistry.key(declaringType, method);
+                if (inheritedMethods == InheritedMethods.reference)
+                    method_.setInheritedFrom(key);
+                else {
+                    method_.setContent(methodRegistry.getInheritedContent(key, () -> getContent(method)));
+                    setSourceRange(method_, method);
+                }
+            }
             // start executable
             method_.setSimpleName(method.getSimpleName());
             method_.setParentName(ctType.getQualifiedName());
@@ -137,17 +351,17 @@ public class TypeProcessor extends AbstractProcessor<CtType> {
             classMethods.add(method.getSignature());
             //methodName = ctType.getQualifiedName() + "::" + methodName;
             method_.setFullName(ctType.getQualifiedName() + "::" + method.getSignature());
-            methods.add(method_);
+            sink.addMethod(method_);
         }
         List<String> classConstructors = new ArrayList<>();
         if ((!object_.isInterface())&&(!object_.isAnnotation())){
             for (Object c:ctClass.getConstructors()){
                 CtConstructor constructor = (CtConstructor) c;
-                Executable_ method_ = new Executable_();
-                if (constructor.getPosition().isValidPosition())
-                    method_.setContent(constructor.toString());
-                else
+                if (!constructor.getPosition().isValidPosition())
                     continue;
+                Executable_ method_ = new Executable_(symbolTable);
+                method_.setContent(getContent(constructor));
+                setSourceRange(method_, constructor);
                 // start executable
                 method_.setSimpleName(ctType.getSimpleName());
                 method_.setParentName(ctType.getQualifiedName());
@@ -156,12 +370,53 @@ public class TypeProcessor extends AbstractProcessor<CtType> {
                 classConstructors.add(constructor.getSignature());
                 //methodName = ctType.getQualifiedName() + "::" + methodName;
                 method_.setFullName(ctType.getQualifiedName() + "::" + constructor.getSignature());
-                method_.setContent(constructor.toString());
-                methods.add(method_);
+                sink.addMethod(method_);
             }
 
         }
-        objects.add(object_);
+        sink.addObject(object_);
         //logger.info("Finished processing " + logText + " \"" + ctType.getQualifiedName() + "\"");
     }
+
+    /**
+     * Stores the file path and the offsets of the element in "reference" mode.
+     */
+    private void setSourceRange(Executable_ method_, CtElement element) {
+        SourcePosition position = element.getPosition();
+        if ((contentMode != ContentMode.reference)||(!position.isValidPosition())||(position.getFile() == null))
+            return;
+        method_.setFilePath(position.getFile().toString());
+        method_.setStartOffset(position.getSourceStart());
+        method_.setEndOffset(position.getSourceEnd() + 1);
+    }
+
+    /**
+     * Returns the code of the element, truncated to the maximum content length, or null in "reference" mode.
+     */
+    private String getContent(CtElement element) {
+        if (contentMode == ContentMode.reference)
+            return null;
+        String content = extractContent(element);
+        if ((maxContentLength > 0)&&(content.length() > maxContentLength))
+            return content.substring(0, maxContentLength);
+        return content;
+    }
+
+    /**
+     * Returns the code of the element. In "source" mode, the text is sliced from the original source of its
+     * compilation unit, which Spoon reads only once per file. Elements without a usable position (such as
+     * implicit elements) fall back to the pretty-printer.
+     */
+    private String extractContent(CtElement element) {
+        if (contentMode == ContentMode.source){
+            SourcePosition position = element.getPosition();
+            if (position.isValidPosition()){
+                CtCompilationUnit compilationUnit = position.getCompilationUnit();
+                String source = (compilationUnit == null) ? null : compilationUnit.getOriginalSourceCode();
+                if ((source != null)&&(position.getSourceEnd() < source.length()))
+                    return source.substring(position.getSourceStart(), position.getSourceEnd() + 1);
+            }
+        }
+        return element.toString();
+    }
 }
@@ -0,0 +1,433 @@
+package services;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the dependency classpath of a Maven or Gradle module from local repositories only, without network
+ * access. The repositories can use the Maven layout (e.g. "~/.m2/repository") or the layout of the Gradle cache
+ * (e.g. "~/.gradle/caches/modules-2/files-2.1").
+ *
+ * <p>Maven modules are resolved from their pom.xml with its parents, properties, managed versions and imported
+ * BOMs. For Gradle modules, the "group:artifact:version" notations of the build file are used. The transitive
+ * dependencies are read from the poms found in the repositories, the nearest declaration of an artifact winning
+ * as in Maven. Test dependencies are skipped, and an artifact without a known version uses the highest version
+ * available locally. Artifacts missing from the repositories are skipped.</p>
+ */
+public class ClasspathResolver {
+    public static final List<String> BUILD_FILES = Arrays.asList("pom.xml", "build.gradle", "build.gradle.kts");
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]+)}");
+    private static final Pattern GRADLE_DEPENDENCY = Pattern.compile(
+            "(?<![A-Za-z])(?:implementation|api|compile|compileOnly|runtimeOnly|runtime|annotationProcessor)" +
+                    "\\s*\\(?\\s*['\"]([^'\":\\s]+):([^'\":\\s]+)(?::([^'\":\\s@]+))?[^'\"]*['\"]");
+
+    private final List<Path> repositories;
+    private final Map<String, Pom> repositoryPoms = new HashMap<>();
+    private final DocumentBuilderFactory factory;
+
+    private static class Dependency {
+        private final String groupId;
+        private final String artifactId;
+        private final String version;
+        private final String scope;
+        private final String type;
+        private final String classifier;
+        private final boolean optional;
+
+        private Dependency(String groupId, String artifactId, String version, String scope, String type,
+                           String classifier, boolean optional) {
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+            this.scope = (scope == null) ? "compile" : scope;
+            this.type = (type == null) ? "jar" : type;
+            this.classifier = classifier;
+            this.optional = optional;
+        }
+
+        private String key() {
+            return groupId + ":" + artifactId;
+        }
+    }
+
+    /**
+     * The parts of a pom used for the resolution, with the properties and managed versions of its parents.
+     */
+    private static class Pom {
+        private final Map<String, String> properties = new HashMap<>();
+        private final Map<String, String> managedVersions = new HashMap<>();
+        private final List<Dependency> dependencies = new ArrayList<>();
+    }
+
+    public ClasspathResolver(List<Path> repositories) {
+        this.repositories = repositories;
+        factory = DocumentBuilderFactory.newInstance();
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        }
+        catch (ParserConfigurationException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public List<Path> getRepositories() {
+        return repositories;
+    }
+
+    /**
+     * Returns the build file of a module ("pom.xml", "build.gradle" or "build.gradle.kts"), or null.
+     */
+    public static Path findBuildFile(Path moduleRoot) {
+        for (String name: BUILD_FILES){
+            Path buildFile = moduleRoot.resolve(name);
+            if (Files.isRegularFile(buildFile))
+                return buildFile;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the jars of the dependencies declared by a build file and of their own dependencies, in the order
+     * they were found.
+     */
+    public synchronized List<Path> resolve(Path buildFile) throws IOException {
+        List<Dependency> declared;
+        Map<String, String> managedVersions;
+        if (buildFile.getFileName().toString().equals("pom.xml")){
+            Pom pom = readModulePom(buildFile, 0);
+            declared = pom.dependencies;
+            managedVersions = pom.managedVersions;
+        }
+        else {
+            declared = readGradleDependencies(buildFile);
+            managedVersions = new HashMap<>();
+        }
+        Map<String, Path> jars = new LinkedHashMap<>();
+        Set<String> visited = new HashSet<>();
+        Deque<Dependency> queue = new ArrayDeque<>();
+        for (Dependency dependency: declared){
+            if ((!dependency.scope.equals("test"))&&(!dependency.scope.equals("system")))
+                queue.add(dependency);
+        }
+        while (!queue.isEmpty()){
+            Dependency dependency = queue.poll();
+            if (!visited.add(dependency.key()))
+                continue;
+            String version = managedVersions.getOrDefault(dependency.key(), dependency.version);
+            if ((version == null)||(version.contains("$"))||(version.startsWith("[")))
+                version = highestVersion(dependency.groupId, dependency.artifactId);
+            if (version == null)
+                continue;
+            if (dependency.type.equals("jar")){
+                Path jar = findArtifact(dependency.groupId, dependency.artifactId, version,
+                        (dependency.classifier == null) ? ".jar" : "-" + dependency.classifier + ".jar");
+                if (jar != null)
+                    jars.put(dependency.key(), jar);
+            }
+            Pom pom = readRepositoryPom(dependency.groupId, dependency.artifactId, version, 0);
+            if (pom == null)
+                continue;
+            for (Dependency transitive: pom.dependencies){
+                if ((!transitive.optional)&&
+                        ((transitive.scope.equals("compile"))||(transitive.scope.equals("runtime"))))
+                    queue.add(new Dependency(transitive.groupId, transitive.artifactId,
+                            (transitive.version != null) ? transitive.version :
+                                    pom.managedVersions.get(transitive.key()),
+                            transitive.scope, transitive.type, transitive.classifier, false));
+            }
+        }
+        return new ArrayList<>(jars.values());
+    }
+
+    private List<Dependency> readGradleDependencies(Path buildFile) throws IOException {
+        String text = new String(Files.readAllBytes(buildFile), StandardCharsets.UTF_8);
+        List<Dependency> dependencies = new ArrayList<>();
+        Matcher matcher = GRADLE_DEPENDENCY.matcher(text);
+        while (matcher.find()){
+            dependencies.add(new Dependency(matcher.group(1), matcher.group(2), matcher.group(3), null, null,
+                    null, false));
+        }
+        return dependencies;
+    }
+
+    /**
+     * Reads the pom of a module, looking for its parent in the source tree before the repositories.
+     */
+    private Pom readModulePom(Path pomPath, int depth) throws IOException {
+        Element project = parse(pomPath);
+        Pom pom = new Pom();
+        Element parent = child(project, "parent");
+        if ((parent != null)&&(depth < 10)){
+            String relativePath = childText(parent, "relativePath");
+            Path parentPath = pomPath.getParent().resolve((relativePath == null) ? "../pom.xml" : relativePath);
+            if (Files.isDirectory(parentPath))
+                parentPath = parentPath.resolve("pom.xml");
+            Pom parentPom;
+            if ((Files.isRegularFile(parentPath))&&(isProject(parse(parentPath), parent)))
+                parentPom = readModulePom(parentPath, depth + 1);
+            else
+                parentPom = readRepositoryPom(childText(parent, "groupId"), childText(parent, "artifactId"),
+                        childText(parent, "version"), depth + 1);
+            inherit(pom, parentPom);
+        }
+        read(project, pom, depth);
+        return pom;
+    }
+
+    private Pom readRepositoryPom(String groupId, String artifactId, String version, int depth) throws IOException {
+        if ((groupId == null)||(artifactId == null)||(version == null))
+            return null;
+        String key = groupId + ":" + artifactId + ":" + version;
+        if (repositoryPoms.containsKey(key))
+            return repositoryPoms.get(key);
+        repositoryPoms.put(key, null);
+        Path pomPath = findArtifact(groupId, artifactId, version, ".pom");
+        if ((pomPath == null)||(depth >= 10))
+            return null;
+        Element project;
+        try {
+            project = parse(pomPath);
+        }
+        catch (IOException e){
+            return null;
+        }
+        Pom pom = new Pom();
+        Element parent = child(project, "parent");
+        if (parent != null)
+            inherit(pom, readRepositoryPom(childText(parent, "groupId"), childText(parent, "artifactId"),
+                    childText(parent, "version"), depth + 1));
+        read(project, pom, depth);
+        repositoryPoms.put(key, pom);
+        return pom;
+    }
+
+    private static boolean isProject(Element project, Element reference) {
+        String groupId = childText(project, "groupId");
+        if ((groupId == null)&&(child(project, "parent") != null))
+            groupId = childText(child(project, "parent"), "groupId");
+        return (String.valueOf(childText(reference, "artifactId")).equals(childText(project, "artifactId")))&&
+                (String.valueOf(childText(reference, "groupId")).equals(groupId));
+    }
+
+    private static void inherit(Pom pom, Pom parent) {
+        if (parent == null)
+            return;
+        pom.properties.putAll(parent.properties);
+        pom.managedVersions.putAll(parent.managedVersions);
+        pom.dependencies.addAll(parent.dependencies);
+    }
+
+    /**
+     * Adds the properties, managed versions and dependencies of a project to those inherited from its parents.
+     */
+    private void read(Element project, Pom pom, int depth) throws IOException {
+        Element parent = child(project, "parent");
+        String groupId = childText(project, "groupId");
+        String version = childText(project, "version");
+        if ((groupId == null)&&(parent != null))
+            groupId = childText(parent, "groupId");
+        if ((version == null)&&(parent != null))
+            version = childText(parent, "version");
+        Element properties = child(project, "properties");
+        if (properties != null){
+            for (Element property: children(properties, null)){
+                pom.properties.put(property.getTagName(), property.getTextContent().trim());
+            }
+        }
+        if (groupId != null){
+            pom.properties.put("project.groupId", groupId);
+            pom.properties.put("pom.groupId", groupId);
+            pom.properties.put("groupId", groupId);
+        }
+        if (version != null){
+            pom.properties.put("project.version", version);
+            pom.properties.put("pom.version", version);
+            pom.properties.put("version", version);
+        }
+        if (parent != null)
+            pom.properties.put("project.parent.version", childText(parent, "version"));
+        Element management = child(child(project, "dependencyManagement"), "dependencies");
+        for (Dependency managed: readDependencies(management, pom)){
+            if ((managed.scope.equals("import"))&&(managed.type.equals("pom"))){
+                Pom bom = readRepositoryPom(managed.groupId, managed.artifactId, managed.version, depth + 1);
+                if (bom != null){
+                    for (Map.Entry<String, String> entry: bom.managedVersions.entrySet()){
+                        pom.managedVersions.putIfAbsent(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            else if (managed.version != null){
+                pom.managedVersions.put(managed.key(), managed.version);
+            }
+        }
+        pom.dependencies.addAll(readDependencies(child(project, "dependencies"), pom));
+    }
+
+    private static List<Dependency> readDependencies(Element dependencies, Pom pom) {
+        List<Dependency> result = new ArrayList<>();
+        if (dependencies == null)
+            return result;
+        for (Element dependency: children(dependencies, "dependency")){
+            String groupId = interpolate(childText(dependency, "groupId"), pom.properties);
+            String artifactId = interpolate(childText(dependency, "artifactId"), pom.properties);
+            if ((groupId == null)||(artifactId == null))
+                continue;
+            result.add(new Dependency(groupId, artifactId,
+                    interpolate(childText(dependency, "version"), pom.properties),
+                    interpolate(childText(dependency, "scope"), pom.properties),
+                    interpolate(childText(dependency, "type"), pom.properties),
+                    interpolate(childText(dependency, "classifier"), pom.properties),
+                    "true".equals(interpolate(childText(dependency, "optional"), pom.properties))));
+        }
+        return result;
+    }
+
+    private static String interpolate(String value, Map<String, String> properties) {
+        if (value == null)
+            return null;
+        for (int i = 0; (i < 10)&&(value.contains("${")); i++){
+            Matcher matcher = PROPERTY.matcher(value);
+            StringBuffer buffer = new StringBuffer();
+            boolean replaced = false;
+            while (matcher.find()){
+                String property = properties.get(matcher.group(1));
+                replaced |= property != null;
+                matcher.appendReplacement(buffer, Matcher.quoteReplacement(
+                        (property != null) ? property : matcher.group()));
+            }
+            matcher.appendTail(buffer);
+            value = buffer.toString();
+            if (!replaced)
+                break;
+        }
+        return value;
+    }
+
+    /**
+     * Finds a file of an artifact ("artifact-version" followed by the suffix) in the repositories.
+     */
+    private Path findArtifact(String groupId, String artifactId, String version, String suffix) throws IOException {
+        String fileName = artifactId + "-" + version + suffix;
+        for (Path repository: repositories){
+            Path mavenPath = repository.resolve(groupId.replace('.', '/')).resolve(artifactId).resolve(version)
+                    .resolve(fileName);
+            if (Files.isRegularFile(mavenPath))
+                return mavenPath;
+            Path gradleDir = repository.resolve(groupId).resolve(artifactId).resolve(version);
+            if (Files.isDirectory(gradleDir)){
+                try (DirectoryStream<Path> hashes = Files.newDirectoryStream(gradleDir)) {
+                    for (Path hash: hashes){
+                        if (Files.isRegularFile(hash.resolve(fileName)))
+                            return hash.resolve(fileName);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private String highestVersion(String groupId, String artifactId) throws IOException {
+        String highest = null;
+        for (Path repository: repositories){
+            for (Path artifactDir: Arrays.asList(
+                    repository.resolve(groupId.replace('.', '/')).resolve(artifactId),
+                    repository.resolve(groupId).resolve(artifactId))){
+                if (!Files.isDirectory(artifactDir))
+                    continue;
+                try (DirectoryStream<Path> versions = Files.newDirectoryStream(artifactDir, Files::isDirectory)) {
+                    for (Path version: versions){
+                        String name = version.getFileName().toString();
+                        if ((highest == null)||(compareVersions(name, highest) > 0))
+                            highest = name;
+                    }
+                }
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Compares two versions by their numeric parts, a qualifier ranking below the release it qualifies.
+     */
+    static int compareVersions(String first, String second) {
+        String[] firstParts = first.split("[.-]");
+        String[] secondParts = second.split("[.-]");
+        for (int i = 0; i < Math.max(firstParts.length, secondParts.length); i++){
+            String a = (i < firstParts.length) ? firstParts[i] : "";
+            String b = (i < secondParts.length) ? secondParts[i] : "";
+            boolean aNumeric = a.matches("\\d+");
+            boolean bNumeric = b.matches("\\d+");
+            int comparison;
+            if ((aNumeric)&&(bNumeric))
+                comparison = Long.compare(Long.parseLong(a), Long.parseLong(b));
+            else if (aNumeric)
+                comparison = 1;
+            else if (bNumeric)
+                comparison = -1;
+            else if (a.isEmpty()||b.isEmpty())
+                comparison = a.isEmpty() ? 1 : -1;
+            else
+                comparison = a.compareToIgnoreCase(b);
+            if (comparison != 0)
+                return comparison;
+        }
+        return 0;
+    }
+
+    private Element parse(Path path) throws IOException {
+        try {
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Document document = builder.parse(path.toFile());
+            return document.getDocumentElement();
+        }
+        catch (ParserConfigurationException|SAXException e){
+            throw new IOException("Failed to parse " + path, e);
+        }
+    }
+
+    private static Element child(Element element, String name) {
+        if (element == null)
+            return null;
+        List<Element> matching = children(element, name);
+        return matching.isEmpty() ? null : matching.get(0);
+    }
+
+    private static String childText(Element element, String name) {
+        Element child = child(element, name);
+        return (child == null) ? null : child.getTextContent().trim();
+    }
+
+    private static List<Element> children(Element element, String name) {
+        List<Element> children = new ArrayList<>();
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()){
+            if ((node instanceof Element)&&((name == null)||(name.equals(((Element) node).getTagName()))))
+                children.add((Element) node);
+        }
+        return children;
+    }
+}
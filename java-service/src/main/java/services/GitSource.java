@@ -0,0 +1,212 @@
+package services;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Reads the source files of commits straight from the object store of a git repository, without checking them
+ * out. The files are identified by the path they would have in the working tree and by the object id of their
+ * blob, which stays the same as long as their content does not change.
+ */
+public class GitSource implements Closeable {
+    private final Repository repository;
+    private final ObjectReader reader;
+    private final Path root;
+
+    /**
+     * The Java files of a commit and the microservices they belong to.
+     */
+    public class Snapshot {
+        private final String commitId;
+        private final Map<String, ObjectId> files;
+        private final List<ServiceInfo> services;
+
+        private Snapshot(String commitId, Map<String, ObjectId> files, List<ServiceInfo> services) {
+            this.commitId = commitId;
+            this.files = files;
+            this.services = services;
+        }
+
+        public String getCommitId() {
+            return commitId;
+        }
+
+        public List<ServiceInfo> getServices() {
+            return services;
+        }
+
+        /**
+         * Returns the blob ids of the Java files under a directory, keyed by path.
+         */
+        public Map<String, String> getBlobIds(Path directory) {
+            String prefix = directory.toString() + File.separator;
+            Map<String, String> blobIds = new TreeMap<>();
+            for (Map.Entry<String, ObjectId> file: files.entrySet()){
+                if ((directory.equals(root))||(file.getKey().startsWith(prefix)))
+                    blobIds.put(file.getKey(), file.getValue().getName());
+            }
+            return blobIds;
+        }
+
+        /**
+         * Reads the content of a Java file of the commit.
+         */
+        public String read(String path) throws IOException {
+            ObjectId blobId = files.get(path);
+            if (blobId == null)
+                throw new IOException("No file " + path + " in commit " + commitId);
+            return new String(reader.open(blobId, Constants.OBJ_BLOB).getBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private GitSource(Repository repository, Path root) {
+        this.repository = repository;
+        this.reader = repository.newObjectReader();
+        this.root = root;
+    }
+
+    /**
+     * Opens the repository of a working tree, or the given git directory (e.g. for a bare repository). The
+     * paths of the files are resolved against the working tree.
+     */
+    public static GitSource open(Path workTree, Path gitDir) throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().readEnvironment().setMustExist(true);
+        if (gitDir != null)
+            builder.setGitDir(gitDir.toFile());
+        else
+            builder.setWorkTree(workTree.toFile());
+        return new GitSource(builder.build(), workTree.toFile().getCanonicalFile().toPath());
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Lists the Java files of a commit (any revision git understands, e.g. a hash, branch or "HEAD~3") and
+     * finds its microservices the same way as {@link ServiceFinder} on a checkout. Returns a single service
+     * with all the files when the application is monolithic.
+     */
+    public Snapshot snapshot(String revision, ServiceFinder finder, boolean monolithic) throws IOException {
+        ObjectId commitId = repository.resolve(revision + "^{commit}");
+        if (commitId == null)
+            throw new IOException("Unknown commit " + revision);
+        Map<String, ObjectId> javaFiles = new TreeMap<>();
+        Map<String, String> buildTools = new HashMap<>();
+        try (RevWalk revWalk = new RevWalk(reader); TreeWalk treeWalk = new TreeWalk(reader)) {
+            RevCommit commit = revWalk.parseCommit(commitId);
+            treeWalk.addTree(commit.getTree());
+            while (treeWalk.next()){
+                String path = treeWalk.getPathString();
+                if (treeWalk.isSubtree()){
+                    String parent = "/" + path.substring(0, path.length() - treeWalk.getNameString().length());
+                    if ((parent.contains("/src/"))||(!finder.isIgnored(Paths.get(treeWalk.getNameString()))))
+                        treeWalk.enterSubtree();
+                    continue;
+                }
+                if ((treeWalk.getFileMode(0).getObjectType() != Constants.OBJ_BLOB)||
+                        (treeWalk.getFileMode(0) == FileMode.SYMLINK))
+                    continue;
+                String name = treeWalk.getNameString();
+                String directory = (path.lastIndexOf('/') < 0) ? "" : path.substring(0, path.lastIndexOf('/'));
+                if (ServiceFinder.MAVEN_FILES.contains(name))
+                    buildTools.put(directory, "maven");
+                else if (ServiceFinder.GRADLE_FILES.contains(name))
+                    buildTools.putIfAbsent(directory, "gradle");
+                else if (name.endsWith(".java"))
+                    javaFiles.put(path, treeWalk.getObjectId(0));
+            }
+        }
+        Set<String> mainJavaDirs = new HashSet<>();
+        for (String path: javaFiles.keySet()){
+            int src = ("/" + path).indexOf("/src/");
+            if ((src >= 0)&&(path.startsWith("src/main/java/", src)))
+                mainJavaDirs.add(path.substring(0, src + "src/main/java".length()));
+        }
+        Map<String, ObjectId> files = new LinkedHashMap<>();
+        Map<String, ServiceInfo> services = new LinkedHashMap<>();
+        for (Map.Entry<String, ObjectId> file: javaFiles.entrySet()){
+            String sourceRoot = monolithic ? "" : sourceRoot(file.getKey(), mainJavaDirs, buildTools);
+            if (sourceRoot == null)
+                continue;
+            Path path = root.resolve(file.getKey());
+            files.put(path.toString(), file.getValue());
+            ServiceInfo service = services.computeIfAbsent(sourceRoot, r -> {
+                String module = monolithic ? null : module(r, buildTools);
+                if (module == null)
+                    return new ServiceInfo(r.isEmpty() ? root : root.resolve(r), null, null);
+                return new ServiceInfo(root.resolve(r), root.resolve(module), buildTools.get(module));
+            });
+            service.addFile(reader.getObjectSize(file.getValue(), Constants.OBJ_BLOB));
+        }
+        List<ServiceInfo> found = new ArrayList<>(services.values());
+        found.sort(Comparator.comparing(s -> s.getSourceRoot().toString()));
+        return new Snapshot(commitId.getName(), files, found);
+    }
+
+    /**
+     * Returns the source root of a file as {@link ServiceFinder} would find it: "src/main/java" under the first
+     * "src" directory of its path, or that "src" directory itself inside a Maven/Gradle module without
+     * "src/main/java". Returns null for a file outside any source root.
+     */
+    private static String sourceRoot(String path, Set<String> mainJavaDirs, Map<String, String> buildTools) {
+        String[] parts = path.split("/");
+        StringBuilder directory = new StringBuilder();
+        for (int i = 0; i < parts.length - 1; i++){
+            if (directory.length() > 0)
+                directory.append('/');
+            directory.append(parts[i]);
+            if (!parts[i].equals("src"))
+                continue;
+            String src = directory.toString();
+            String mainJava = src + "/main/java";
+            if (mainJavaDirs.contains(mainJava))
+                return path.startsWith(mainJava + "/") ? mainJava : null;
+            return (module(src, buildTools) != null) ? src : null;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the closest directory containing a build file among a directory and its parents, or null.
+     */
+    private static String module(String directory, Map<String, String> buildTools) {
+        String current = directory;
+        while (true){
+            if (buildTools.containsKey(current))
+                return current;
+            if (current.isEmpty())
+                return null;
+            current = (current.lastIndexOf('/') < 0) ? "" : current.substring(0, current.lastIndexOf('/'));
+        }
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+        repository.close();
+    }
+}
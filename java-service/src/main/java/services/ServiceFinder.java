@@ -0,0 +1,383 @@
+package services;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the microservices of an application by looking for their Java source roots. The directories are listed
+ * in parallel on a fork-join pool, and the ignored directories (build outputs, dependencies, VCS metadata, the
+ * given globs and the directories excluded by the .gitignore files) are not visited. Symbolic links to directories
+ * are followed, except those leading back to one of their ancestors.
+ *
+ * <p>A "src" directory is a source root through its "main/java" subdirectory, or by itself when it belongs to a
+ * Maven/Gradle module without the standard layout. The contents of a source root are only counted, not searched
+ * for other roots.</p>
+ */
+public class ServiceFinder {
+    public static final List<String> DEFAULT_IGNORED = Arrays.asList(
+            "node_modules", ".git", ".svn", ".hg", "target", "build", "out", ".gradle", ".idea", ".mvn");
+    static final List<String> MAVEN_FILES = Arrays.asList("pom.xml");
+    static final List<String> GRADLE_FILES = Arrays.asList("build.gradle", "build.gradle.kts");
+
+    private final List<PathMatcher> ignored = new ArrayList<>();
+    private final boolean ignoreTest;
+    private final boolean useGitignore;
+    private static Logger consoleLogger = (Logger) LoggerFactory.getLogger("consoleLogger");
+    private static Logger fileLogger = (Logger) LoggerFactory.getLogger("fileLogger");
+
+    public ServiceFinder(Collection<String> ignoredGlobs, boolean ignoreTest, boolean useGitignore) {
+        FileSystem fileSystem = FileSystems.getDefault();
+        for (String glob: DEFAULT_IGNORED){
+            ignored.add(fileSystem.getPathMatcher("glob:" + glob));
+        }
+        for (String glob: ignoredGlobs){
+            ignored.add(fileSystem.getPathMatcher("glob:" + glob));
+        }
+        this.ignoreTest = ignoreTest;
+        this.useGitignore = useGitignore;
+    }
+
+    public ServiceFinder() {
+        this(new ArrayList<>(), false, true);
+    }
+
+    /**
+     * Returns the microservices found under the given path, sorted by source root.
+     */
+    public List<ServiceInfo> find(Path root) {
+        ConcurrentLinkedQueue<ServiceInfo> found = new ConcurrentLinkedQueue<>();
+        if (Files.isDirectory(root)){
+            ForkJoinPool pool = new ForkJoinPool();
+            Search search = new Search(found, MDC.getCopyOfContextMap());
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(root, BasicFileAttributes.class);
+                pool.invoke(new DirectoryTask(root, null, null, GitIgnore.EMPTY,
+                        Collections.singletonList(fileKey(root, attributes)), search));
+            }
+            catch (IOException e){
+                search.skip(root, e);
+            }
+            finally {
+                pool.shutdown();
+            }
+        }
+        List<ServiceInfo> services = new ArrayList<>(found);
+        services.sort(Comparator.comparing(s -> s.getSourceRoot().toString()));
+        return services;
+    }
+
+    private boolean isIgnored(Path dir, BasicFileAttributes attributes, GitIgnore gitIgnore) {
+        Path name = dir.getFileName();
+        if (name == null)
+            return false;
+        if (isIgnored(name))
+            return true;
+        return gitIgnore.isIgnored(dir, attributes.isDirectory());
+    }
+
+    /**
+     * Checks whether a directory name matches the ignored globs (and is "test" when test sources are ignored).
+     */
+    public boolean isIgnored(Path name) {
+        for (PathMatcher matcher: ignored){
+            if (matcher.matches(name))
+                return true;
+        }
+        return ignoreTest && name.toString().equals("test");
+    }
+
+    /**
+     * Identifies a directory, to recognize it when it is reached again through a symbolic link.
+     */
+    private static Object fileKey(Path dir, BasicFileAttributes attributes) throws IOException {
+        Object key = attributes.fileKey();
+        return (key != null) ? key : dir.toRealPath();
+    }
+
+    /**
+     * The results and the logging context shared by the tasks of a search.
+     */
+    private static class Search {
+        private final Collection<ServiceInfo> found;
+        private final Map<String, String> logContext;
+
+        private Search(Collection<ServiceInfo> found, Map<String, String> logContext) {
+            this.found = found;
+            this.logContext = logContext;
+        }
+
+        /**
+         * Reports a directory or a file that could not be read and is skipped.
+         */
+        private void skip(Path path, IOException e) {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            if (logContext != null)
+                MDC.setContextMap(logContext);
+            try {
+                consoleLogger.warn("Skipping {}, which cannot be read: {}", path, e.toString());
+                fileLogger.warn("Skipping {}, which cannot be read: {}", path, e.toString());
+            }
+            finally {
+                if (previous != null)
+                    MDC.setContextMap(previous);
+                else
+                    MDC.clear();
+            }
+        }
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Path dir;
+        private final ServiceInfo service;
+        private final ServiceInfo module;
+        private final GitIgnore gitIgnore;
+        private final List<Object> ancestors;
+        private final Search search;
+
+        /**
+         * @param service the source root being counted, or null while searching for source roots
+         * @param module a placeholder holding the root and build tool of the enclosing module, or null
+         * @param ancestors the file keys of the directory and of its ancestors
+         */
+        private DirectoryTask(Path dir, ServiceInfo service, ServiceInfo module, GitIgnore gitIgnore,
+                              List<Object> ancestors, Search search) {
+            this.dir = dir;
+            this.service = service;
+            this.module = module;
+            this.gitIgnore = gitIgnore;
+            this.ancestors = ancestors;
+            this.search = search;
+        }
+
+        @Override
+        protected void compute() {
+            if (service != null){
+                count();
+                return;
+            }
+            ServiceInfo currentModule = module;
+            String buildTool = buildTool(dir);
+            if (buildTool != null)
+                currentModule = new ServiceInfo(null, dir, buildTool);
+            GitIgnore currentGitIgnore = useGitignore ? gitIgnore.enter(dir) : gitIgnore;
+            if ((dir.getFileName() != null)&&(dir.getFileName().toString().equals("src"))){
+                Path mainJava = dir.resolve("main").resolve("java");
+                Path sourceRoot = null;
+                List<Object> rootAncestors = ancestors;
+                if (Files.isDirectory(mainJava)){
+                    sourceRoot = mainJava;
+                    try {
+                        rootAncestors = new ArrayList<>(ancestors);
+                        rootAncestors.add(fileKey(dir.resolve("main"), Files.readAttributes(dir.resolve("main"),
+                                BasicFileAttributes.class)));
+                        rootAncestors.add(fileKey(mainJava, Files.readAttributes(mainJava,
+                                BasicFileAttributes.class)));
+                    }
+                    catch (IOException e){
+                        search.skip(mainJava, e);
+                        return;
+                    }
+                }
+                else if (currentModule != null)
+                    sourceRoot = dir;
+                if (sourceRoot != null){
+                    ServiceInfo info = (currentModule != null) ?
+                            new ServiceInfo(sourceRoot, currentModule.getModuleRoot(), currentModule.getBuildTool()) :
+                            new ServiceInfo(sourceRoot, null, null);
+                    search.found.add(info);
+                    new DirectoryTask(sourceRoot, info, currentModule, currentGitIgnore, rootAncestors, search)
+                            .compute();
+                }
+                return;
+            }
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            for (Path child: list()){
+                BasicFileAttributes attributes = readAttributes(child);
+                if ((attributes == null)||(!attributes.isDirectory())||
+                        (isIgnored(child, attributes, currentGitIgnore)))
+                    continue;
+                List<Object> childAncestors = enter(child, attributes);
+                if (childAncestors != null)
+                    subtasks.add(new DirectoryTask(child, null, currentModule, currentGitIgnore, childAncestors,
+                            search));
+            }
+            invokeAll(subtasks);
+        }
+
+        private void count() {
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            for (Path child: list()){
+                BasicFileAttributes attributes = readAttributes(child);
+                if (attributes == null)
+                    continue;
+                if (attributes.isDirectory()){
+                    List<Object> childAncestors = enter(child, attributes);
+                    if (childAncestors != null)
+                        subtasks.add(new DirectoryTask(child, service, module, gitIgnore, childAncestors, search));
+                }
+                else if (child.toString().endsWith(".java"))
+                    service.addFile(attributes.size());
+            }
+            invokeAll(subtasks);
+        }
+
+        /**
+         * Lists the directory, or returns an empty list when it cannot be read.
+         */
+        private List<Path> list() {
+            List<Path> children = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path child: stream){
+                    children.add(child);
+                }
+            }
+            catch (IOException e){
+                search.skip(dir, e);
+            }
+            return children;
+        }
+
+        /**
+         * Reads the attributes of a child, following symbolic links, or returns null when they cannot be read.
+         */
+        private BasicFileAttributes readAttributes(Path child) {
+            try {
+                return Files.readAttributes(child, BasicFileAttributes.class);
+            }
+            catch (IOException e){
+                search.skip(child, e);
+                return null;
+            }
+        }
+
+        /**
+         * Returns the ancestors of a child directory, or null when it is one of its own ancestors (reached
+         * through a symbolic link) and must not be visited again.
+         */
+        private List<Object> enter(Path child, BasicFileAttributes attributes) {
+            Object key;
+            try {
+                key = fileKey(child, attributes);
+            }
+            catch (IOException e){
+                search.skip(child, e);
+                return null;
+            }
+            if (ancestors.contains(key))
+                return null;
+            List<Object> childAncestors = new ArrayList<>(ancestors);
+            childAncestors.add(key);
+            return childAncestors;
+        }
+    }
+
+    private static String buildTool(Path dir) {
+        for (String file: MAVEN_FILES){
+            if (Files.isRegularFile(dir.resolve(file)))
+                return "maven";
+        }
+        for (String file: GRADLE_FILES){
+            if (Files.isRegularFile(dir.resolve(file)))
+                return "gradle";
+        }
+        return null;
+    }
+
+    /**
+     * The .gitignore rules that apply to a directory, inherited from its ancestors. Only the common subset of
+     * the syntax is supported: comments, negations, directory-only patterns and anchored patterns. As in git, the
+     * last matching rule wins, so a negation re-includes a directory excluded by an earlier rule (but not the
+     * contents of an excluded directory, which is never visited).
+     */
+    private static class GitIgnore {
+        private static final GitIgnore EMPTY = new GitIgnore(new ArrayList<>());
+        private final List<Rule> rules;
+
+        private static class Rule {
+            private final Path base;
+            private final PathMatcher matcher;
+            private final boolean anchored;
+            private final boolean directoryOnly;
+            private final boolean negated;
+
+            private Rule(Path base, PathMatcher matcher, boolean anchored, boolean directoryOnly, boolean negated) {
+                this.base = base;
+                this.matcher = matcher;
+                this.anchored = anchored;
+                this.directoryOnly = directoryOnly;
+                this.negated = negated;
+            }
+        }
+
+        private GitIgnore(List<Rule> rules) {
+            this.rules = rules;
+        }
+
+        private GitIgnore enter(Path dir) {
+            Path file = dir.resolve(".gitignore");
+            if (!Files.isRegularFile(file))
+                return this;
+            List<Rule> combined = new ArrayList<>(rules);
+            try {
+                for (String line: Files.readAllLines(file, StandardCharsets.UTF_8)){
+                    String pattern = line.trim();
+                    if ((pattern.isEmpty())||(pattern.startsWith("#")))
+                        continue;
+                    boolean negated = pattern.startsWith("!");
+                    if (negated)
+                        pattern = pattern.substring(1);
+                    boolean directoryOnly = pattern.endsWith("/");
+                    if (directoryOnly)
+                        pattern = pattern.substring(0, pattern.length() - 1);
+                    boolean anchored = pattern.contains("/");
+                    if (pattern.startsWith("/"))
+                        pattern = pattern.substring(1);
+                    if (pattern.isEmpty())
+                        continue;
+                    combined.add(new Rule(dir, dir.getFileSystem().getPathMatcher("glob:" + pattern), anchored,
+                            directoryOnly, negated));
+                }
+            }
+            catch (IOException | IllegalArgumentException e){
+                return this;
+            }
+            return new GitIgnore(combined);
+        }
+
+        private boolean isIgnored(Path path, boolean isDirectory) {
+            boolean ignored = false;
+            for (Rule rule: rules){
+                if ((rule.directoryOnly)&&(!isDirectory))
+                    continue;
+                if (!path.startsWith(rule.base))
+                    continue;
+                Path target = rule.anchored ? rule.base.relativize(path) : path.getFileName();
+                if ((target != null)&&(rule.matcher.matches(target)))
+                    ignored = !rule.negated;
+            }
+            return ignored;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package services;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A microservice found in the analyzed application: its Java source root, the Maven/Gradle module it belongs to
+ * (if any) and the number and total size of its source files.
+ */
+public class ServiceInfo {
+    private final Path sourceRoot;
+    private final Path moduleRoot;
+    private final String buildTool;
+    private final AtomicLong fileCount = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    public ServiceInfo(Path sourceRoot, Path moduleRoot, String buildTool) {
+        this.sourceRoot = sourceRoot;
+        this.moduleRoot = moduleRoot;
+        this.buildTool = buildTool;
+    }
+
+    public Path getSourceRoot() {
+        return sourceRoot;
+    }
+
+    public Path getModuleRoot() {
+        return moduleRoot;
+    }
+
+    /**
+     * "maven", "gradle" or null when no build file was found above the source root.
+     */
+    public String getBuildTool() {
+        return buildTool;
+    }
+
+    public long getFileCount() {
+        return fileCount.get();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    void addFile(long size) {
+        fileCount.incrementAndGet();
+        totalBytes.addAndGet(size);
+    }
+
+    @Override
+    public String toString() {
+        return sourceRoot + " (" + fileCount + " files, " + totalBytes + " bytes" +
+                ((buildTool != null) ? ", " + buildTool + " module " + moduleRoot : "") + ")";
+    }
+}
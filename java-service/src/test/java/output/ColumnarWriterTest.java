@@ -0,0 +1,138 @@
+package output;
+
+import models.Executable_;
+import models.Object_;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarWriterTest {
+    @TempDir
+    Path outputDir;
+
+    private static Object_ type(String fullName, String filePath, String content, Integer start, Integer end) {
+        Object_ object_ = new Object_();
+        object_.setFullName(fullName);
+        object_.setSimpleName((fullName == null) ? null : fullName.substring(fullName.lastIndexOf('.') + 1));
+        object_.setFilePath(filePath);
+        object_.setServiceName("orders");
+        object_.setContent(content);
+        object_.setStartOffset(start);
+        object_.setEndOffset(end);
+        return object_;
+    }
+
+    private static Executable_ method(String fullName, String parentName, String inheritedFrom, String content,
+                                      int start, int end) {
+        Executable_ method_ = new Executable_();
+        method_.setFullName(fullName);
+        method_.setSimpleName(fullName.substring(fullName.indexOf("::") + 2, fullName.indexOf('(')));
+        method_.setParentName(parentName);
+        method_.setServiceName("orders");
+        method_.setInheritedFrom(inheritedFrom);
+        method_.setContent(content);
+        method_.setFilePath((content == null) ? null : "src/Order.java");
+        method_.setStartOffset(start);
+        method_.setEndOffset(end);
+        return method_;
+    }
+
+    @Test
+    void readsBackTheTypesWithNullsDictionariesAndMissingOffsets() throws IOException {
+        Path typePath = outputDir.resolve("typeData.bin");
+        try (ColumnarWriter writer = new ColumnarWriter(typePath, outputDir.resolve("methodData.bin"), true, true)) {
+            Object_ order = type("com.y.Order", "src/Order.java", "class Order { String s = \"\u00e9\"; }", 10, 40);
+            order.setContentHash("a1");
+            order.setInterface(true);
+            writer.addObject(order);
+            writer.addObject(type(null, null, null, null, null));
+            Object_ line = type("com.y.Line", "src/Order.java", "class Line {}", 41, 55);
+            line.setContentHash("a1");
+            line.setAnnotation(true);
+            writer.addObject(line);
+        }
+
+        try (ColumnarReader reader = new ColumnarReader(typePath)) {
+            assertEquals(3, reader.getRowCount());
+            assertArrayEquals(new int[]{10, -1, 41}, reader.readInts("startOffset"));
+            assertArrayEquals(new int[]{40, -1, 55}, reader.readInts("endOffset"));
+            List<Object_> types = reader.readObjects(true);
+            assertEquals(3, types.size());
+
+            Object_ order = types.get(0);
+            assertEquals("com.y.Order", order.getFullName());
+            assertEquals("Order", order.getSimpleName());
+            assertEquals("class Order { String s = \"\u00e9\"; }", order.getContent());
+            assertEquals(10, order.getStartOffset());
+            assertEquals(40, order.getEndOffset());
+            assertEquals("a1", order.getContentHash());
+            assertTrue(order.isInterface());
+            assertFalse(order.isAnnotation());
+
+            Object_ empty = types.get(1);
+            assertNull(empty.getFullName());
+            assertNull(empty.getSimpleName());
+            assertNull(empty.getFilePath());
+            assertNull(empty.getContent());
+            assertNull(empty.getContentHash());
+            assertNull(empty.getStartOffset());
+            assertNull(empty.getEndOffset());
+
+            Object_ line = types.get(2);
+            assertEquals("class Line {}", line.getContent());
+            assertTrue(line.isAnnotation());
+            assertSame(order.getFilePath(), line.getFilePath());
+            assertSame(order.getContentHash(), line.getContentHash());
+            List<String> services = reader.readStrings("serviceName");
+            assertEquals(Arrays.asList("orders", "orders", "orders"), services);
+            assertSame(services.get(0), services.get(2));
+        }
+    }
+
+    @Test
+    void readsBackTheMethodsWithOrWithoutTheirContents() throws IOException {
+        Path methodPath = outputDir.resolve("methodData.bin");
+        try (ColumnarWriter writer = new ColumnarWriter(outputDir.resolve("typeData.bin"), methodPath, true)) {
+            writer.addMethod(method("com.y.Order::total()", "com.y.Order", null, "int total() { return 1; }", 5, 30));
+            writer.addMethod(method("com.y.Line::total()", "com.y.Line", "com.y.Order", null, -1, -1));
+        }
+
+        try (ColumnarReader reader = new ColumnarReader(methodPath)) {
+            assertFalse(reader.getColumnNames().contains("contentHash"));
+            List<Executable_> withContent = reader.readMethods(true);
+            assertEquals("int total() { return 1; }", withContent.get(0).getContent());
+            assertNull(withContent.get(1).getContent());
+
+            List<Executable_> methods = reader.readMethods(false);
+            assertEquals(2, methods.size());
+            Executable_ total = methods.get(0);
+            assertNull(total.getContent());
+            assertEquals("com.y.Order::total()", total.getFullName());
+            assertEquals("total", total.getSimpleName());
+            assertEquals("com.y.Order", total.getParentName());
+            assertEquals("orders", total.getServiceName());
+            assertNull(total.getInheritedFrom());
+            assertEquals("src/Order.java", total.getFilePath());
+            assertEquals(5, total.getStartOffset());
+            assertEquals(30, total.getEndOffset());
+
+            Executable_ inherited = methods.get(1);
+            assertEquals("com.y.Order", inherited.getInheritedFrom());
+            assertNull(inherited.getFilePath());
+            assertNull(inherited.getStartOffset());
+            assertNull(inherited.getEndOffset());
+            assertSame(total.getServiceName(), inherited.getServiceName());
+        }
+    }
+}
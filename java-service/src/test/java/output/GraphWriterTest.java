@@ -0,0 +1,138 @@
+package output;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import processors.DependencyGraph;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphWriterTest {
+    @TempDir
+    Path outputDir;
+
+    /**
+     * A relation read back from the CSR file, as "service/source -> service/target" strings.
+     */
+    private static List<String> edges(Map<String, int[][]> relations, String relation, JsonObject nodes) {
+        int[][] csr = relations.get(relation);
+        String kind = relation.equals("references") ? "type" : "method";
+        String targetKind = relation.equals("calls") ? "method" : relation.equals("references") ? "type" : "field";
+        List<String> edges = new ArrayList<>();
+        for (int source = 0; source + 1 < csr[0].length; source++){
+            for (int i = csr[0][source]; i < csr[0][source + 1]; i++){
+                edges.add(node(nodes, kind, source) + " -> " + node(nodes, targetKind, csr[1][i]));
+            }
+        }
+        return edges;
+    }
+
+    private static String node(JsonObject nodes, String kind, int id) {
+        int service = nodes.getAsJsonArray(kind + "Services").get(id).getAsInt();
+        String serviceName = (service < 0) ? "-" : nodes.getAsJsonArray("services").get(service).getAsString();
+        return serviceName + "/" + nodes.getAsJsonArray(kind + "s").get(id).getAsString();
+    }
+
+    /**
+     * Decodes the relations of a CSR file as their row offsets and target ids.
+     */
+    private static Map<String, int[][]> readGraph(Path path, String[] kinds) throws IOException {
+        Map<String, int[][]> relations = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            byte[] magic = new byte[GraphWriter.MAGIC.length];
+            in.readFully(magic);
+            assertArrayEquals(GraphWriter.MAGIC, magic);
+            int count = in.readInt();
+            for (int r = 0; r < count; r++){
+                String name = in.readUTF();
+                kinds[2 * r] = in.readUTF();
+                kinds[2 * r + 1] = in.readUTF();
+                int rows = in.readInt();
+                int edges = in.readInt();
+                int[] offsets = new int[rows + 1];
+                for (int i = 0; i <= rows; i++){
+                    offsets[i] = in.readInt();
+                }
+                int[] targets = new int[edges];
+                for (int i = 0; i < edges; i++){
+                    targets[i] = in.readInt();
+                }
+                assertEquals(edges, offsets[rows]);
+                relations.put(name, new int[][]{offsets, targets});
+            }
+            assertEquals(-1, in.read());
+        }
+        return relations;
+    }
+
+    private static DependencyGraph serviceGraph(String caller) {
+        DependencyGraph graph = new DependencyGraph();
+        graph.declare(DependencyGraph.NodeKind.type, "com.y.Order");
+        graph.declare(DependencyGraph.NodeKind.type, caller);
+        graph.declare(DependencyGraph.NodeKind.method, "com.y.Order::total()");
+        graph.declare(DependencyGraph.NodeKind.method, caller + "::run()");
+        graph.declare(DependencyGraph.NodeKind.field, "com.y.Order#items");
+        graph.addEdge(DependencyGraph.Relation.calls, caller + "::run()", "com.y.Order::total()");
+        graph.addEdge(DependencyGraph.Relation.calls, caller + "::run()", "java.lang.Object::toString()");
+        graph.addEdge(DependencyGraph.Relation.reads, "com.y.Order::total()", "com.y.Order#items");
+        graph.addEdge(DependencyGraph.Relation.references, caller, "com.y.Order");
+        return graph;
+    }
+
+    @Test
+    void keepsTheNodesOfEachMicroserviceApart() throws IOException {
+        DependencyGraph graph = new DependencyGraph();
+        graph.merge("orders", serviceGraph("com.y.Checkout"));
+        graph.merge("orders2", serviceGraph("com.y.Cart"));
+        Path nodesPath = outputDir.resolve("dependencyNodes.json");
+        Path graphPath = outputDir.resolve("dependencyGraph.csr");
+        GraphWriter.write(graph, nodesPath, graphPath);
+
+        JsonObject nodes = JsonParser.parseString(new String(Files.readAllBytes(nodesPath),
+                StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(Arrays.asList("orders", "orders2"), strings(nodes.getAsJsonArray("services")));
+        assertEquals(Arrays.asList("com.y.Order", "com.y.Checkout", "com.y.Order", "com.y.Cart"),
+                strings(nodes.getAsJsonArray("types")));
+        assertEquals(Arrays.asList("0", "0", "1", "1"), strings(nodes.getAsJsonArray("typeServices")));
+        assertEquals(4, nodes.getAsJsonArray("methods").size());
+        assertEquals(2, nodes.getAsJsonArray("fields").size());
+
+        String[] kinds = new String[8];
+        Map<String, int[][]> relations = readGraph(graphPath, kinds);
+        assertEquals(4, relations.size());
+        assertArrayEquals(new String[]{"method", "method", "method", "field", "method", "field", "type", "type"},
+                kinds);
+        assertEquals(Arrays.asList("orders/com.y.Checkout::run() -> orders/com.y.Order::total()",
+                "orders2/com.y.Cart::run() -> orders2/com.y.Order::total()"),
+                edges(relations, "calls", nodes));
+        assertEquals(Arrays.asList("orders/com.y.Order::total() -> orders/com.y.Order#items",
+                "orders2/com.y.Order::total() -> orders2/com.y.Order#items"),
+                edges(relations, "reads", nodes));
+        assertTrue(edges(relations, "writes", nodes).isEmpty());
+        assertEquals(Arrays.asList("orders/com.y.Checkout -> orders/com.y.Order",
+                "orders2/com.y.Cart -> orders2/com.y.Order"),
+                edges(relations, "references", nodes));
+    }
+
+    private static List<String> strings(JsonArray array) {
+        List<String> strings = new ArrayList<>();
+        array.forEach(element -> strings.add(element.getAsString()));
+        return strings;
+    }
+}
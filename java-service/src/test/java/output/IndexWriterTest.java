@@ -0,0 +1,91 @@
+package output;
+
+import models.DataIndex;
+import models.Executable_;
+import models.Object_;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexWriterTest {
+    @TempDir
+    Path outputDir;
+
+    private static Object_ type(String serviceName, String fullName, String content) {
+        Object_ object_ = new Object_();
+        object_.setServiceName(serviceName);
+        object_.setFullName(fullName);
+        object_.setSimpleName(fullName.substring(fullName.lastIndexOf('.') + 1));
+        object_.setContent(content);
+        return object_;
+    }
+
+    private static Executable_ method(String serviceName, String fullName, String parentName, String content) {
+        Executable_ method_ = new Executable_();
+        method_.setServiceName(serviceName);
+        method_.setFullName(fullName);
+        method_.setParentName(parentName);
+        method_.setContent(content);
+        return method_;
+    }
+
+    private static List<String> names(List<?> entities) {
+        List<String> names = new ArrayList<>();
+        for (Object entity: entities){
+            names.add((entity instanceof Object_) ? ((Object_) entity).getFullName()
+                    : ((Executable_) entity).getFullName() + " " + ((Executable_) entity).getContent());
+        }
+        return names;
+    }
+
+    @Test
+    void looksUpTheRecordsOfTheDataFiles() throws IOException {
+        try (JsonStreamWriter writer = new JsonStreamWriter(outputDir.resolve(DataIndex.TYPE_FILE),
+                outputDir.resolve(DataIndex.METHOD_FILE))) {
+            writer.addObject(type("orders", "com.y.Order", "class Order { String s = \"}{\\\"\"; }"));
+            writer.addObject(type("users", "com.y.User", "class User { String name = \"\u00e9\"; }"));
+            writer.addObject(type("orders", "com.y.util.Money", "class Money {}"));
+            writer.addObject(type("users", "com.y.Order", "class Order {}"));
+            writer.addMethod(method("orders", "com.y.Order::total()", "com.y.Order", "int total() { return 1; }"));
+            writer.addMethod(method("users", "com.y.User::name()", "com.y.User", "String name() { return \"]\"; }"));
+            writer.addMethod(method("orders", "com.y.Order::total()", "com.y.Order", "int total() { return 2; }"));
+            writer.addMethod(method("orders", "com.y.lambda()", null, "() -> {}"));
+        }
+        IndexWriter.write(outputDir);
+
+        try (DataIndex index = DataIndex.open(outputDir)) {
+            assertEquals(4, index.getTypeCount());
+            assertEquals(4, index.getMethodCount());
+            assertEquals(Arrays.asList("com.y.Order", "com.y.Order"), names(index.getTypes("com.y.Order")));
+            assertEquals(Arrays.asList("com.y.Order::total() int total() { return 1; }",
+                    "com.y.Order::total() int total() { return 2; }"),
+                    names(index.getMethods("com.y.Order::total()")));
+            assertEquals(Collections.singletonList("com.y.User::name() String name() { return \"]\"; }"),
+                    names(index.getMethodsOf("com.y.User")));
+            assertEquals(Arrays.asList("com.y.Order", "com.y.util.Money"), names(index.getTypesOf("orders")));
+            assertEquals(Arrays.asList("com.y.Order", "com.y.User", "com.y.util.Money"),
+                    index.findTypeNames("com.y."));
+            assertEquals(Collections.singletonList("com.y.util.Money"), index.findTypeNames("com.y.util"));
+            assertEquals(Arrays.asList("com.y.Order::total()", "com.y.User::name()", "com.y.lambda()"),
+                    index.findMethodNames("com.y."));
+            assertTrue(index.getTypes("com.y.Missing").isEmpty());
+            assertTrue(index.getMethodsOf("com.y.util.Money").isEmpty());
+
+            assertEquals("class Order { String s = \"}{\\\"\"; }", index.readType(0).getContent());
+            assertEquals("class User { String name = \"\u00e9\"; }", index.readType(1).getContent());
+            assertEquals("users", index.readType(3).getServiceName());
+            assertEquals("() -> {}", index.readMethod(3).getContent());
+            assertThrows(IndexOutOfBoundsException.class, () -> index.readMethod(4));
+        }
+    }
+}